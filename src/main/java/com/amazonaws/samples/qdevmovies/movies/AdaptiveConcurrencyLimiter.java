@@ -0,0 +1,133 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that adapts to observed latency (a gradient limiter).
+ *
+ * Requests either get a slot immediately or are rejected - nothing queues. Latency samples
+ * are summed into {@link LongAdder}s; once per window a single thread (whoever wins the CAS
+ * on the window start) compares the window's average latency to the no-load baseline and
+ * shrinks the limit when latency rises, or grows it by roughly sqrt(limit) when it does not.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final LongSupplier clock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder windowLatencyNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicLong windowStart;
+
+    private volatile double limit;
+    private volatile double baselineLatencyNanos = Double.NaN;
+    private volatile double lastLatencyNanos = Double.NaN;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long windowMillis) {
+        this(initialLimit, minLimit, maxLimit, windowMillis, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long windowMillis, LongSupplier clock) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 0 < min <= initial <= max");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.clock = clock;
+        this.windowStart = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Claim a slot if the current limit allows it. Never blocks.
+     */
+    public boolean tryAcquire() {
+        int maxAllowed = (int) limit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxAllowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (current + 1 > peakInFlight.get()) {
+                    peakInFlight.accumulateAndGet(current + 1, Math::max);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return a slot claimed by {@link #tryAcquire()} and record how long the request took.
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        windowLatencyNanos.add(latencyNanos);
+        windowSamples.increment();
+
+        long now = clock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            updateLimit();
+        }
+    }
+
+    private void updateLimit() {
+        long samples = windowSamples.sumThenReset();
+        long totalLatency = windowLatencyNanos.sumThenReset();
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        if (samples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+        double latency = (double) totalLatency / samples;
+        lastLatencyNanos = latency;
+
+        double baseline = baselineLatencyNanos;
+        if (Double.isNaN(baseline) || latency < baseline) {
+            baseline = latency;
+        } else {
+            // Let the baseline creep up slowly so a permanently slower workload is not punished forever
+            baseline += (latency - baseline) * BASELINE_DRIFT;
+        }
+        baselineLatencyNanos = baseline;
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, baseline / latency));
+        if (gradient >= 1.0 && peak < current / 2) {
+            // Not using half the slots we have; latency says nothing about whether more would help
+            return;
+        }
+        double target = current * gradient + Math.sqrt(current);
+        double next = (1 - SMOOTHING) * current + SMOOTHING * target;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getBaselineLatencyMillis() {
+        return baselineLatencyNanos / 1_000_000.0;
+    }
+
+    public double getLastLatencyMillis() {
+        return lastLatencyNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Operational endpoints for the crew keeping the ship afloat.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private SearchAdmissionFilter searchAdmissionFilter;
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FlightRecorderService flightRecorderService;
+
+    /**
+     * Admission control counters and the current adaptive concurrency limit.
+     */
+    @GetMapping("/admission")
+    public Map<String, Object> getAdmissionMetrics() {
+        return searchAdmissionFilter.getMetrics();
+    }
+
+    /**
+     * Startup warm-up results, including the time from JVM start to the first good p99.
+     */
+    @GetMapping("/warmup")
+    public Map<String, Object> getWarmupReport() {
+        return startupWarmup.getReport();
+    }
+
+    /**
+     * Estimated heap bytes per movie and per review, before and after interning and compact
+     * text. With {@code syntheticMovies} the report is for a generated catalog of that size
+     * instead of the live one. Only answers requests from this host, since a synthetic catalog
+     * takes heap and CPU from the app while it is built.
+     */
+    @GetMapping("/memory")
+    public Map<String, Object> getMemoryReport(
+            HttpServletRequest request,
+            @RequestParam(required = false, defaultValue = "0") int syntheticMovies,
+            @RequestParam(required = false, defaultValue = "5") int reviewsPerMovie) {
+        requireLocal(request);
+        if (syntheticMovies == 0) {
+            return CatalogMemoryReport.measure(movieService.getAllMovies(), reviewService.getAllReviews());
+        }
+        if (syntheticMovies < 0 || syntheticMovies > CatalogMemoryReport.MAX_SYNTHETIC_MOVIES) {
+            throw new IllegalArgumentException("syntheticMovies must be between 0 and "
+                    + CatalogMemoryReport.MAX_SYNTHETIC_MOVIES);
+        }
+        if (reviewsPerMovie < 0 || reviewsPerMovie > CatalogMemoryReport.MAX_SYNTHETIC_REVIEWS_PER_MOVIE) {
+            throw new IllegalArgumentException("reviewsPerMovie must be between 0 and "
+                    + CatalogMemoryReport.MAX_SYNTHETIC_REVIEWS_PER_MOVIE);
+        }
+        return CatalogMemoryReport.measureSynthetic(syntheticMovies, reviewsPerMovie);
+    }
+
+    /**
+     * Flight recording state, size and limits. The recording endpoints only answer requests
+     * from this host: a recording shows the app's internals and can slow it down.
+     */
+    @GetMapping("/recording")
+    public Map<String, Object> getRecordingStatus(HttpServletRequest request) {
+        requireLocal(request);
+        return flightRecorderService.getStatus();
+    }
+
+    /**
+     * Start a bounded flight recording; limits default to {@code movies.profiling.*}.
+     */
+    @PostMapping("/recording/start")
+    public Map<String, Object> startRecording(HttpServletRequest request,
+                                              @RequestParam(required = false) Long maxAgeMinutes,
+                                              @RequestParam(required = false) Long maxSizeMb) {
+        requireLocal(request);
+        return flightRecorderService.start(maxAgeMinutes, maxSizeMb);
+    }
+
+    @PostMapping("/recording/stop")
+    public Map<String, Object> stopRecording(HttpServletRequest request) {
+        requireLocal(request);
+        return flightRecorderService.stop();
+    }
+
+    /**
+     * Download the recording as a .jfr file, for JDK Mission Control or {@code jfr print}.
+     */
+    @GetMapping("/recording/download")
+    public ResponseEntity<StreamingResponseBody> downloadRecording(HttpServletRequest request) throws IOException {
+        requireLocal(request);
+        Path file = flightRecorderService.dump();
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"movies.jfr\"")
+                .body(body);
+    }
+
+    /**
+     * @throws SecurityException unless the request comes from a loopback address
+     */
+    static void requireLocal(HttpServletRequest request) {
+        if (!CallerAddresses.isLoopback(request.getRemoteAddr())) {
+            throw new SecurityException("Only available from localhost");
+        }
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    public Map<String, String> handleForbidden(SecurityException e) {
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> handleConflict(IllegalStateException e) {
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleInvalidParameter(IllegalArgumentException e) {
+        return Collections.singletonMap("message", e.getMessage());
+    }
+}
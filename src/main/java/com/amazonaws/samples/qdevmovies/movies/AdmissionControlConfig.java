@@ -0,0 +1,54 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+/**
+ * Wires the search admission filter from the {@code movies.admission.*} properties.
+ */
+@Configuration
+public class AdmissionControlConfig {
+    /** Searches this shard for a coordinator; see {@link SearchAdmissionFilter} for how peers are treated. */
+    static final String SHARD_SEARCH_PATH = "/api/cluster/shard/search";
+
+    static final String[] PROTECTED_PATHS = {"/movies/search", "/api/movies/search", "/api/cluster/movies/search",
+            SHARD_SEARCH_PATH};
+
+    @Bean
+    public SearchAdmissionFilter searchAdmissionFilter(
+            @Value("${movies.admission.rate-per-second:10}") double ratePerSecond,
+            @Value("${movies.admission.burst:20}") int burst,
+            @Value("${movies.admission.max-clients:10000}") int maxClients,
+            @Value("${movies.admission.initial-concurrency:20}") int initialConcurrency,
+            @Value("${movies.admission.min-concurrency:2}") int minConcurrency,
+            @Value("${movies.admission.max-concurrency:200}") int maxConcurrency,
+            @Value("${movies.admission.window-millis:1000}") long windowMillis,
+            CatalogShard catalogShard) {
+        return new SearchAdmissionFilter(
+                new TokenBucketRateLimiter(ratePerSecond, burst, maxClients),
+                new AdaptiveConcurrencyLimiter(initialConcurrency, minConcurrency, maxConcurrency, windowMillis),
+                peerAddresses(catalogShard));
+    }
+
+    /**
+     * Resolve the configured shard nodes once at startup. Nodes that do not resolve are left
+     * out, so their searches are rate limited like any other client's.
+     */
+    static Set<String> peerAddresses(CatalogShard catalogShard) {
+        return CallerAddresses.resolve(catalogShard.getNodes());
+    }
+
+    @Bean
+    public FilterRegistrationBean<SearchAdmissionFilter> searchAdmissionFilterRegistration(
+            SearchAdmissionFilter searchAdmissionFilter,
+            @Value("${movies.admission.enabled:true}") boolean enabled) {
+        FilterRegistrationBean<SearchAdmissionFilter> registration = new FilterRegistrationBean<>(searchAdmissionFilter);
+        registration.addUrlPatterns(PROTECTED_PATHS);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
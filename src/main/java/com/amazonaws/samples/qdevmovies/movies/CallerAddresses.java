@@ -0,0 +1,54 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks on a request's remote address for endpoints that only this host or the other
+ * configured nodes may call.
+ */
+final class CallerAddresses {
+    private static final Logger logger = LogManager.getLogger(CallerAddresses.class);
+
+    private CallerAddresses() {
+    }
+
+    /**
+     * @param address A remote address as reported by the servlet container
+     */
+    static boolean isLoopback(String address) {
+        try {
+            // Servlet remote addresses are IP literals, so this does not look anything up
+            return InetAddress.getByName(address).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolve the hosts of the given node URLs once, at startup. Nodes that do not resolve are
+     * left out, so their requests are treated like any other client's.
+     */
+    static Set<String> resolve(Collection<String> nodeUrls) {
+        Set<String> addresses = new HashSet<>();
+        for (String node : nodeUrls) {
+            try {
+                for (InetAddress address : InetAddress.getAllByName(new URL(node).getHost())) {
+                    addresses.add(address.getHostAddress());
+                }
+            } catch (MalformedURLException | UnknownHostException e) {
+                logger.warn("Node {} could not be resolved, its requests are treated like any other client's: {}",
+                        node, e.getMessage());
+            }
+        }
+        return addresses;
+    }
+}
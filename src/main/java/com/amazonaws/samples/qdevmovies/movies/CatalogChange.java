@@ -0,0 +1,126 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One entry in the replicated catalog log. Versions start at 1 and have no gaps, so a replica
+ * at version N has applied exactly the changes 1..N of one leader epoch on top of the bundled
+ * movies.json, or of a {@link CatalogSnapshot} taken at or before N.
+ */
+public class CatalogChange {
+
+    public enum Type {
+        UPSERT_MOVIE,
+        REMOVE_MOVIE,
+        APPEND_REVIEW
+    }
+
+    private final long version;
+    private final Type type;
+    private final long movieId;
+    private final Movie movie;
+    private final Review review;
+
+    private CatalogChange(long version, Type type, long movieId, Movie movie, Review review) {
+        this.version = version;
+        this.type = type;
+        this.movieId = movieId;
+        this.movie = movie;
+        this.review = review;
+    }
+
+    public static CatalogChange upsertMovie(long version, Movie movie) {
+        return new CatalogChange(version, Type.UPSERT_MOVIE, movie.getId(), movie, null);
+    }
+
+    public static CatalogChange removeMovie(long version, long movieId) {
+        return new CatalogChange(version, Type.REMOVE_MOVIE, movieId, null, null);
+    }
+
+    public static CatalogChange appendReview(long version, long movieId, Review review) {
+        return new CatalogChange(version, Type.APPEND_REVIEW, movieId, null, review);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getMovieId() {
+        return movieId;
+    }
+
+    /** The new movie for {@link Type#UPSERT_MOVIE}, otherwise null. */
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /** The appended review for {@link Type#APPEND_REVIEW}, otherwise null. */
+    public Review getReview() {
+        return review;
+    }
+
+    /**
+     * Wire format, in the same field names as movies.json and mock-reviews.json.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("version", version);
+        map.put("type", type.name());
+        map.put("movieId", movieId);
+        if (movie != null) {
+            map.put("movie", movieToMap(movie));
+        }
+        if (review != null) {
+            map.put("review", reviewToMap(review));
+        }
+        return map;
+    }
+
+    static Map<String, Object> movieToMap(Movie movie) {
+        Map<String, Object> movieMap = new LinkedHashMap<>();
+        movieMap.put("id", movie.getId());
+        movieMap.put("movieName", movie.getMovieName());
+        movieMap.put("director", movie.getDirector());
+        movieMap.put("year", movie.getYear());
+        movieMap.put("genre", movie.getGenre());
+        movieMap.put("description", movie.getDescription());
+        movieMap.put("duration", movie.getDuration());
+        movieMap.put("imdbRating", movie.getImdbRating());
+        return movieMap;
+    }
+
+    static Map<String, Object> reviewToMap(Review review) {
+        Map<String, Object> reviewMap = new LinkedHashMap<>();
+        reviewMap.put("userName", review.getUserName());
+        reviewMap.put("avatarEmoji", review.getAvatarEmoji());
+        reviewMap.put("rating", review.getRating());
+        reviewMap.put("comment", review.getComment());
+        return reviewMap;
+    }
+
+    public static CatalogChange fromJson(JSONObject json) {
+        long version = json.getLong("version");
+        Type type = Type.valueOf(json.getString("type"));
+        switch (type) {
+            case UPSERT_MOVIE:
+                return upsertMovie(version, MovieService.parseMovie(json.getJSONObject("movie")));
+            case REMOVE_MOVIE:
+                return removeMovie(version, json.getLong("movieId"));
+            default:
+                return appendReview(version, json.getLong("movieId"),
+                        ReviewService.parseReview(json.getJSONObject("review")));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + type + " " + movieId;
+    }
+}
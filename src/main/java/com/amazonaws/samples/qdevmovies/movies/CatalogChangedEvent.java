@@ -0,0 +1,29 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after replicated changes have been applied, so services holding indexes derived
+ * from the catalog or reviews can rebuild them.
+ */
+public class CatalogChangedEvent extends ApplicationEvent {
+
+    private final long version;
+    private final boolean moviesChanged;
+
+    public CatalogChangedEvent(Object source, long version, boolean moviesChanged) {
+        super(source);
+        this.version = version;
+        this.moviesChanged = moviesChanged;
+    }
+
+    /** Catalog version after the change. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** False when only reviews changed. */
+    public boolean isMoviesChanged() {
+        return moviesChanged;
+    }
+}
@@ -0,0 +1,118 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Catalog writes on the leader and the replication endpoints followers pull from.
+ * Movie and review bodies use the same fields as movies.json and mock-reviews.json.
+ * Writes and notifications are only accepted from this host and the configured replicas.
+ */
+@RestController
+@RequestMapping("/api/catalog")
+public class CatalogController {
+    private static final Logger logger = LogManager.getLogger(CatalogController.class);
+
+    @Autowired
+    private CatalogReplicationService replicationService;
+
+    @PostMapping("/movies")
+    public Map<String, Object> upsertMovie(HttpServletRequest request, @RequestBody String movieJson) {
+        requireTrustedCaller(request);
+        return replicationService.upsertMovie(MovieService.parseMovie(new JSONObject(movieJson))).toMap();
+    }
+
+    @DeleteMapping("/movies/{id}")
+    public Map<String, Object> removeMovie(HttpServletRequest request, @PathVariable("id") Long id) {
+        requireTrustedCaller(request);
+        return replicationService.removeMovie(id).toMap();
+    }
+
+    @PostMapping("/movies/{id}/reviews")
+    public Map<String, Object> appendReview(HttpServletRequest request, @PathVariable("id") Long id,
+                                            @RequestBody String reviewJson) {
+        requireTrustedCaller(request);
+        return replicationService.appendReview(id, ReviewService.parseReview(new JSONObject(reviewJson))).toMap();
+    }
+
+    /**
+     * Changes after version {@code since}, oldest first, with the current epoch and version.
+     * {@code snapshotRequired} tells a follower on another epoch, or too far behind, to load
+     * {@code /snapshot} instead.
+     */
+    @GetMapping("/changes")
+    public Map<String, Object> getChanges(@RequestParam(value = "since", defaultValue = "0") long since,
+                                          @RequestParam(value = "limit", defaultValue = "500") int limit,
+                                          @RequestParam(value = "epoch", required = false) String epoch) {
+        return replicationService.getChanges(since, limit, epoch);
+    }
+
+    /**
+     * The whole catalog and reviews at the current version.
+     */
+    @GetMapping("/snapshot")
+    public Map<String, Object> getSnapshot() {
+        return replicationService.getSnapshot().toMap();
+    }
+
+    /**
+     * Sent by the leader after each change so followers pull right away.
+     */
+    @PostMapping("/notify")
+    public Map<String, Object> notifyVersion(HttpServletRequest request, @RequestParam("version") long version,
+                                             @RequestParam(value = "epoch", required = false) String epoch) {
+        requireTrustedCaller(request);
+        replicationService.requestSync(version, epoch);
+        return replicationService.getStatus();
+    }
+
+    @GetMapping("/replication")
+    public Map<String, Object> getReplicationStatus() {
+        return replicationService.getStatus();
+    }
+
+    private void requireTrustedCaller(HttpServletRequest request) {
+        if (!replicationService.isTrustedCaller(request.getRemoteAddr())) {
+            throw new SecurityException("Catalog changes are only accepted from localhost and the configured replicas");
+        }
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    public Map<String, String> handleForbidden(SecurityException e) {
+        logger.warn("Rejected catalog request: {}", e.getMessage());
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> handleReadOnly(IllegalStateException e) {
+        logger.warn("Rejected catalog change: {}", e.getMessage());
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    @ExceptionHandler(JSONException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleMalformedBody(JSONException e) {
+        logger.warn("Malformed catalog change: {}", e.getMessage());
+        return Collections.singletonMap("message", e.getMessage());
+    }
+}
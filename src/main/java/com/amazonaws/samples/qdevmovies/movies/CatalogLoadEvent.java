@@ -0,0 +1,22 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for loading or replacing the movie catalog.
+ */
+@Name("com.amazonaws.samples.qdevmovies.CatalogLoad")
+@Label("Catalog Load")
+@Category("Movies")
+@Description("Movie catalog loaded from its source or rebuilt after an update")
+class CatalogLoadEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Movies")
+    int movieCount;
+}
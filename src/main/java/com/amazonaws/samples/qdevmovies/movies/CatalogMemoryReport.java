@@ -0,0 +1,189 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.StringInterner;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimated heap footprint of movies and reviews, before and after interning and compact text.
+ *
+ * "Before" is the same data with every text field held as its own {@link String}. "After" is
+ * what is actually stored: shared strings are counted once across the whole collection and
+ * descriptions and comments as their UTF-8 byte arrays. Sizes come from the HotSpot object
+ * layout with compressed oops and 8-byte alignment (the default below a 32 GB heap) rather
+ * than a heap dump, so they are cheap enough to compute on request and stable between runs.
+ *
+ * The interners that share the strings live only while a catalog loads, so the live report has
+ * none to count. The synthetic report measures at the end of its load and adds the interners'
+ * map, table and nodes to "after", so it shows the peak of a load rather than the steady state.
+ */
+final class CatalogMemoryReport {
+
+    static final int MAX_SYNTHETIC_MOVIES = 20_000;
+    static final int MAX_SYNTHETIC_REVIEWS_PER_MOVIE = 10;
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    /** JDK 9+ stores Latin-1 strings one byte per char; Java 8 always uses two. */
+    private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+    private static final long STRING_SHALLOW = align(OBJECT_HEADER + REFERENCE + 4 + (COMPACT_STRINGS ? 2 : 0));
+    /** id, year, duration, rating and four references. */
+    private static final long MOVIE_SHALLOW = align(OBJECT_HEADER + 8 + 4 + 4 + 8 + 4 * REFERENCE);
+    /** rating and three references. */
+    private static final long REVIEW_SHALLOW = align(OBJECT_HEADER + 8 + 3 * REFERENCE);
+    /** The interner's two references, its LongAdder and its ConcurrentHashMap's own fields. */
+    private static final long INTERNER_SHALLOW = align(OBJECT_HEADER + 2 * REFERENCE)
+            + align(OBJECT_HEADER + 8 + REFERENCE + 4) + align(OBJECT_HEADER + 8 + 3 * 4 + 6 * REFERENCE);
+    /** ConcurrentHashMap.Node: hash and three references. */
+    private static final long MAP_NODE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+
+    private static final String[] GENRES = {"Drama", "Crime/Drama", "Action/Crime", "Adventure/Fantasy",
+            "Sci-Fi", "Comedy", "Romance", "Horror", "Animation", "Documentary"};
+    private static final String[] AVATARS = {"🏴‍☠️", "🦜", "⚓", "🗺️", "💰", "🦈", "🐙", "🧭"};
+
+    private CatalogMemoryReport() {
+    }
+
+    /**
+     * Footprint of the given movies and reviews.
+     */
+    static Map<String, Object> measure(Collection<Movie> movies, Collection<Review> reviews) {
+        return measure(movies, reviews, 0, 0);
+    }
+
+    /**
+     * @param movieOverhead Bytes held for the movies outside them, added to their "after"
+     * @param reviewOverhead Bytes held for the reviews outside them, added to their "after"
+     */
+    private static Map<String, Object> measure(Collection<Movie> movies, Collection<Review> reviews,
+                                               long movieOverhead, long reviewOverhead) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long moviesBefore = 0;
+        long moviesAfter = movieOverhead;
+        for (Movie movie : movies) {
+            moviesBefore += MOVIE_SHALLOW + stringBytes(movie.getMovieName()) + stringBytes(movie.getDirector())
+                    + stringBytes(movie.getGenre()) + stringBytes(movie.getDescription());
+            moviesAfter += MOVIE_SHALLOW + sharedStringBytes(movie.getMovieName(), seen)
+                    + sharedStringBytes(movie.getDirector(), seen) + sharedStringBytes(movie.getGenre(), seen)
+                    + byteArrayBytes(movie.getDescriptionUtf8());
+        }
+        long reviewsBefore = 0;
+        long reviewsAfter = reviewOverhead;
+        for (Review review : reviews) {
+            reviewsBefore += REVIEW_SHALLOW + stringBytes(review.getUserName()) + stringBytes(review.getAvatarEmoji())
+                    + stringBytes(review.getComment());
+            reviewsAfter += REVIEW_SHALLOW + sharedStringBytes(review.getUserName(), seen)
+                    + sharedStringBytes(review.getAvatarEmoji(), seen) + byteArrayBytes(review.getCommentUtf8());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("layout", "compressed oops, 8-byte alignment, compact strings " + (COMPACT_STRINGS ? "on" : "off"));
+        report.put("movies", footprint(movies.size(), moviesBefore, moviesAfter));
+        report.put("reviews", footprint(reviews.size(), reviewsBefore, reviewsAfter));
+        return report;
+    }
+
+    /**
+     * Footprint of a generated catalog parsed through the same loaders as the real one, with
+     * its own interners so the live pools are not touched.
+     */
+    static Map<String, Object> measureSynthetic(int movieCount, int reviewsPerMovie) {
+        StringInterner catalogStrings = new StringInterner();
+        StringInterner reviewStrings = new StringInterner();
+        int directors = Math.max(1, movieCount / 5);
+        List<Movie> movies = new ArrayList<>(movieCount);
+        List<Review> reviews = new ArrayList<>(movieCount * reviewsPerMovie);
+        for (int i = 1; i <= movieCount; i++) {
+            JSONObject movie = new JSONObject()
+                    .put("id", i)
+                    .put("movieName", "Treasure Voyage " + i)
+                    .put("director", "Captain Director " + (i % directors))
+                    .put("year", 1950 + i % 75)
+                    .put("genre", GENRES[i % GENRES.length])
+                    .put("description", "Voyage " + i + " follows a crew chasing a legendary treasure across "
+                            + "uncharted waters, facing storms, mutiny and rival pirates along the way.")
+                    .put("duration", 90 + i % 90)
+                    .put("imdbRating", 1 + (i % 41) / 10.0);
+            movies.add(MovieService.parseMovie(movie, catalogStrings));
+            for (int r = 0; r < reviewsPerMovie; r++) {
+                JSONObject review = new JSONObject()
+                        .put("userName", "Sailor " + ((i * 31 + r) % 2000))
+                        .put("avatarEmoji", AVATARS[(i + r) % AVATARS.length])
+                        .put("rating", 1 + (i + r) % 5)
+                        .put("comment", "Review " + r + " of voyage " + i + ": a fine tale of the high seas, arrr!");
+                reviews.add(ReviewService.parseReview(review, reviewStrings));
+            }
+        }
+        long catalogPool = internerBytes(catalogStrings.size());
+        long reviewPool = internerBytes(reviewStrings.size());
+        Map<String, Object> report = measure(movies, reviews, catalogPool, reviewPool);
+        report.put("internedCatalogStrings", catalogStrings.size());
+        report.put("internedReviewStrings", reviewStrings.size());
+        report.put("internerBytes", catalogPool + reviewPool);
+        return report;
+    }
+
+    private static Map<String, Object> footprint(int count, long before, long after) {
+        Map<String, Object> footprint = new LinkedHashMap<>();
+        footprint.put("count", count);
+        footprint.put("bytesBefore", before);
+        footprint.put("bytesAfter", after);
+        footprint.put("bytesPerItemBefore", count == 0 ? 0 : before / count);
+        footprint.put("bytesPerItemAfter", count == 0 ? 0 : after / count);
+        footprint.put("savedPercent", before == 0 ? 0 : Math.round(1000.0 * (before - after) / before) / 10.0);
+        return footprint;
+    }
+
+    private static long sharedStringBytes(String value, Set<Object> seen) {
+        return value != null && seen.add(value) ? stringBytes(value) : 0;
+    }
+
+    /**
+     * Bytes of an interner holding {@code entries} strings, not counting the strings themselves.
+     * The map's table starts at 16 slots and doubles once it is three quarters full.
+     */
+    static long internerBytes(int entries) {
+        if (entries == 0) {
+            return INTERNER_SHALLOW;
+        }
+        long capacity = 16;
+        while (entries >= capacity - (capacity >>> 2)) {
+            capacity <<= 1;
+        }
+        return INTERNER_SHALLOW + align(ARRAY_HEADER + capacity * REFERENCE) + entries * MAP_NODE;
+    }
+
+    static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int bytesPerChar = COMPACT_STRINGS && isLatin1(value) ? 1 : 2;
+        return STRING_SHALLOW + align(ARRAY_HEADER + (long) value.length() * bytesPerChar);
+    }
+
+    static long byteArrayBytes(byte[] value) {
+        return value == null ? 0 : align(ARRAY_HEADER + value.length);
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
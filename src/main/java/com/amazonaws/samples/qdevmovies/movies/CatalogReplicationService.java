@@ -0,0 +1,453 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Keeps replicas of the catalog converged through a versioned change log.
+ *
+ * Every replica starts from the bundled movies.json at version 0. The leader accepts writes,
+ * applies them locally, appends them to the log and tells each follower the new version.
+ * Followers pull the changes they are missing over HTTP, on notification and on a fixed
+ * poll as a fallback, and apply them in version order without reloading the catalog.
+ * After every applied batch a {@link CatalogChangedEvent} lets derived indexes rebuild.
+ *
+ * The log lives in memory, so each leader process has a random epoch and versions only
+ * compare within one epoch. When a follower's last known epoch differs from the leader's,
+ * its version is ahead of the leader's, or the changes it needs have been compacted out of
+ * the bounded log, the leader asks it to reload from a {@link CatalogSnapshot} instead.
+ */
+@Service
+public class CatalogReplicationService {
+    private static final Logger logger = LogManager.getLogger(CatalogReplicationService.class);
+
+    public enum Role {
+        STANDALONE,
+        LEADER,
+        FOLLOWER
+    }
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Role role;
+    private final String leaderUrl;
+    private final List<String> followers;
+    /** Addresses of the leader and followers, which may send writes and notifications. */
+    private final Set<String> peerAddresses;
+    private final long pollMillis;
+    private final int timeoutMillis;
+    private final int batchSize;
+    private final int logRetention;
+    private final ScheduledExecutorService scheduler;
+    private final String epoch = UUID.randomUUID().toString();
+
+    /** Guarded by this; entry i holds version logStart + i + 1. */
+    private final List<CatalogChange> log = new ArrayList<>();
+    /** Leader writes waiting for the next group commit; guarded by itself. */
+    private final List<PendingWrite> pendingWrites = new ArrayList<>();
+    private long logStart;
+    private volatile long version;
+    private volatile long leaderVersion;
+    /** The leader epoch this follower's version belongs to; null until the first sync. */
+    private volatile String leaderEpoch;
+    private final AtomicLong syncFailures = new AtomicLong();
+    private final AtomicLong snapshotsLoaded = new AtomicLong();
+
+    @Autowired
+    public CatalogReplicationService(MovieService movieService, ReviewService reviewService,
+                                     ApplicationEventPublisher eventPublisher,
+                                     @Value("${movies.replication.role:standalone}") String role,
+                                     @Value("${movies.replication.leader-url:}") String leaderUrl,
+                                     @Value("${movies.replication.followers:}") String followers,
+                                     @Value("${movies.replication.poll-millis:1000}") long pollMillis,
+                                     @Value("${movies.replication.timeout-millis:1000}") int timeoutMillis,
+                                     @Value("${movies.replication.batch-size:500}") int batchSize,
+                                     @Value("${movies.replication.log-retention:10000}") int logRetention) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.eventPublisher = eventPublisher;
+        this.role = Role.valueOf(role.trim().toUpperCase(Locale.ROOT));
+        this.leaderUrl = leaderUrl.trim();
+        this.followers = new ArrayList<>();
+        for (String follower : followers.split(",")) {
+            if (!follower.trim().isEmpty()) {
+                this.followers.add(follower.trim());
+            }
+        }
+        List<String> peers = new ArrayList<>(this.followers);
+        if (!this.leaderUrl.isEmpty()) {
+            peers.add(this.leaderUrl);
+        }
+        this.peerAddresses = CallerAddresses.resolve(peers);
+        this.pollMillis = pollMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.batchSize = batchSize;
+        this.logRetention = Math.max(1, logRetention);
+        if (this.role == Role.FOLLOWER && this.leaderUrl.isEmpty()) {
+            throw new IllegalArgumentException("movies.replication.leader-url is required for followers");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-replication");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (role == Role.FOLLOWER) {
+            scheduler.scheduleWithFixedDelay(this::sync, 0, pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public CatalogChange upsertMovie(Movie movie) {
+        return write(nextVersion -> CatalogChange.upsertMovie(nextVersion, movie));
+    }
+
+    public CatalogChange removeMovie(long movieId) {
+        return write(nextVersion -> CatalogChange.removeMovie(nextVersion, movieId));
+    }
+
+    public CatalogChange appendReview(long movieId, Review review) {
+        return write(nextVersion -> CatalogChange.appendReview(nextVersion, movieId, review));
+    }
+
+    /**
+     * Whether a request from {@code remoteAddress} may change the catalog or trigger a sync:
+     * only this host and the configured leader and followers may.
+     */
+    public boolean isTrustedCaller(String remoteAddress) {
+        return peerAddresses.contains(remoteAddress) || CallerAddresses.isLoopback(remoteAddress);
+    }
+
+    private void requireWritable() {
+        if (role == Role.FOLLOWER) {
+            throw new IllegalStateException("Followers are read-only, send catalog changes to " + leaderUrl);
+        }
+    }
+
+    /**
+     * Group commit: the write is queued, and whichever writer next holds the lock applies every
+     * queued write as one batch, so writes that arrive while a batch is being applied share one
+     * catalog rebuild and one follower notification.
+     */
+    private CatalogChange write(LongFunction<CatalogChange> change) {
+        requireWritable();
+        PendingWrite write = new PendingWrite(change);
+        synchronized (pendingWrites) {
+            pendingWrites.add(write);
+        }
+        synchronized (this) {
+            if (!write.done) {
+                commitPendingWrites();
+            }
+        }
+        if (write.failure != null) {
+            throw write.failure;
+        }
+        return write.committed;
+    }
+
+    /** Caller holds the lock. */
+    private void commitPendingWrites() {
+        List<PendingWrite> batch;
+        synchronized (pendingWrites) {
+            batch = new ArrayList<>(pendingWrites);
+            pendingWrites.clear();
+        }
+        List<CatalogChange> changes = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            write.committed = write.change.apply(version + changes.size() + 1);
+            changes.add(write.committed);
+        }
+        try {
+            applyInOrder(changes);
+        } catch (RuntimeException e) {
+            for (PendingWrite write : batch) {
+                write.failure = e;
+            }
+        } finally {
+            for (PendingWrite write : batch) {
+                write.done = true;
+            }
+        }
+        if (batch.get(0).failure == null) {
+            long committedVersion = version;
+            for (String follower : followers) {
+                scheduler.execute(() -> notifyFollower(follower, committedVersion));
+            }
+        }
+    }
+
+    private void notifyFollower(String follower, long notifiedVersion) {
+        try {
+            HttpJson.post(follower + "/api/catalog/notify?version=" + notifiedVersion + "&epoch=" + epoch,
+                    timeoutMillis);
+        } catch (IOException e) {
+            // The follower will still catch up on its next poll
+            logger.debug("Could not notify follower {} of version {}: {}", follower, notifiedVersion, e.getMessage());
+        }
+    }
+
+    /**
+     * Changes after {@code since}, oldest first, at most {@code limit} of them. Changes that
+     * have been compacted out of the log are not returned.
+     */
+    public synchronized List<CatalogChange> getChangesSince(long since, int limit) {
+        int from = (int) Math.max(0, Math.min(since - logStart, log.size()));
+        int to = (int) Math.min(log.size(), (long) from + Math.max(0, limit));
+        return new ArrayList<>(log.subList(from, to));
+    }
+
+    /**
+     * The reply to a follower's pull: the changes after {@code since}, or a request to load a
+     * snapshot when the log cannot bring the follower up to date.
+     *
+     * @param followerEpoch The leader epoch the follower's version belongs to, or null if it
+     *                      has not synced yet and is still at the bundled catalog
+     */
+    public synchronized Map<String, Object> getChanges(long since, int limit, String followerEpoch) {
+        boolean snapshotRequired = (followerEpoch != null && !followerEpoch.equals(epoch))
+                || since > version || since < logStart;
+        List<Map<String, Object>> changes = new ArrayList<>();
+        if (!snapshotRequired) {
+            for (CatalogChange change : getChangesSince(since, limit)) {
+                changes.add(change.toMap());
+            }
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("epoch", epoch);
+        response.put("version", version);
+        response.put("snapshotRequired", snapshotRequired);
+        response.put("changes", changes);
+        return response;
+    }
+
+    /**
+     * The whole catalog and reviews at the current version.
+     */
+    public synchronized CatalogSnapshot getSnapshot() {
+        return new CatalogSnapshot(epoch, version, movieService.getAllMovies(), reviewService.getReviewsByMovie());
+    }
+
+    /**
+     * Ask a follower to pull from the leader now rather than at its next poll.
+     *
+     * @param notifiedEpoch The leader's epoch, or null if not sent
+     */
+    public void requestSync(long notifiedVersion, String notifiedEpoch) {
+        if (role != Role.FOLLOWER) {
+            return;
+        }
+        boolean newEpoch = notifiedEpoch != null && leaderEpoch != null && !notifiedEpoch.equals(leaderEpoch);
+        if (newEpoch || notifiedVersion > version) {
+            leaderVersion = newEpoch ? notifiedVersion : Math.max(leaderVersion, notifiedVersion);
+            scheduler.execute(this::sync);
+        }
+    }
+
+    /**
+     * Pull and apply everything the leader has that this follower does not.
+     */
+    void sync() {
+        try {
+            while (true) {
+                String body = HttpJson.get(leaderUrl + "/api/catalog/changes?since=" + version
+                        + "&limit=" + batchSize + (leaderEpoch == null ? "" : "&epoch=" + leaderEpoch), timeoutMillis);
+                if (body == null) {
+                    throw new IOException(leaderUrl + " does not serve catalog changes");
+                }
+                JSONObject response = new JSONObject(body);
+                leaderVersion = response.getLong("version");
+                if (response.getBoolean("snapshotRequired")) {
+                    loadSnapshotFromLeader();
+                    continue;
+                }
+                leaderEpoch = response.getString("epoch");
+                JSONArray entries = response.getJSONArray("changes");
+                List<CatalogChange> changes = new ArrayList<>(entries.length());
+                for (int i = 0; i < entries.length(); i++) {
+                    changes.add(CatalogChange.fromJson(entries.getJSONObject(i)));
+                }
+                apply(changes);
+                if (changes.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            syncFailures.incrementAndGet();
+            logger.warn("Catalog sync from {} failed at version {}: {}", leaderUrl, version, e.getMessage());
+        }
+    }
+
+    private void loadSnapshotFromLeader() throws IOException {
+        String body = HttpJson.get(leaderUrl + "/api/catalog/snapshot", timeoutMillis);
+        if (body == null) {
+            throw new IOException(leaderUrl + " does not serve catalog snapshots");
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.fromJson(new JSONObject(body));
+        logger.warn("Reloading catalog from leader snapshot: leader epoch {} version {}, was epoch {} version {}",
+                snapshot.getEpoch(), snapshot.getVersion(), leaderEpoch, version);
+        applySnapshot(snapshot);
+        leaderEpoch = snapshot.getEpoch();
+    }
+
+    /**
+     * Replace this replica's catalog and reviews with a snapshot and continue from its version.
+     */
+    public synchronized void applySnapshot(CatalogSnapshot snapshot) {
+        movieService.replaceCatalog(snapshot.getMovies());
+        reviewService.replaceReviews(snapshot.getReviewsByMovie());
+        log.clear();
+        logStart = snapshot.getVersion();
+        snapshotsLoaded.incrementAndGet();
+        eventPublisher.publishEvent(new CatalogChangedEvent(this, snapshot.getVersion(), true));
+        version = snapshot.getVersion();
+    }
+
+    /**
+     * Apply changes received from the leader. Changes already applied are skipped; a gap in
+     * versions means something was lost in transit and nothing is applied.
+     */
+    public synchronized void apply(List<CatalogChange> changes) {
+        List<CatalogChange> pending = new ArrayList<>(changes.size());
+        long expected = version + 1;
+        for (CatalogChange change : changes) {
+            if (change.getVersion() < expected) {
+                continue;
+            }
+            if (change.getVersion() != expected) {
+                throw new IllegalStateException("Expected catalog version " + expected
+                        + " but received " + change.getVersion());
+            }
+            pending.add(change);
+            expected++;
+        }
+        if (!pending.isEmpty()) {
+            applyInOrder(pending);
+        }
+    }
+
+    /**
+     * Apply consecutive changes starting at {@code version + 1}. Movie changes are folded so the
+     * search indexes are rebuilt once per batch. Caller holds the lock.
+     */
+    private void applyInOrder(List<CatalogChange> changes) {
+        Map<Long, Movie> movieChanges = new LinkedHashMap<>();
+        for (CatalogChange change : changes) {
+            switch (change.getType()) {
+                case UPSERT_MOVIE:
+                    movieChanges.put(change.getMovieId(), change.getMovie());
+                    break;
+                case REMOVE_MOVIE:
+                    movieChanges.put(change.getMovieId(), null);
+                    break;
+                default:
+                    reviewService.appendReview(change.getMovieId(), change.getReview());
+            }
+        }
+        if (!movieChanges.isEmpty()) {
+            List<Movie> upserts = new ArrayList<>();
+            List<Long> removedIds = new ArrayList<>();
+            for (Map.Entry<Long, Movie> entry : movieChanges.entrySet()) {
+                if (entry.getValue() != null) {
+                    upserts.add(entry.getValue());
+                } else {
+                    removedIds.add(entry.getKey());
+                }
+            }
+            movieService.updateCatalog(upserts, removedIds);
+        }
+        log.addAll(changes);
+        compactLog();
+        long applied = changes.get(changes.size() - 1).getVersion();
+        eventPublisher.publishEvent(new CatalogChangedEvent(this, applied, !movieChanges.isEmpty()));
+        // Publish the version after the listeners, so anyone who sees it also sees the new reviews
+        // and suggestions. Similar movies rebuild on their own thread and may still lag behind.
+        version = applied;
+        logger.info("Catalog at version {} after applying {} changes", applied, changes.size());
+    }
+
+    /**
+     * Drop the oldest entries once the log is a tenth over its retention, so trimming is not
+     * paid on every write. Followers that fall further behind reload from a snapshot.
+     */
+    private void compactLog() {
+        if (log.size() > logRetention + logRetention / 10) {
+            int dropped = log.size() - logRetention;
+            log.subList(0, dropped).clear();
+            logStart += dropped;
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", role);
+        status.put("version", version);
+        synchronized (this) {
+            status.put("oldestRetainedVersion", logStart + 1);
+            status.put("logSize", log.size());
+        }
+        if (role == Role.FOLLOWER) {
+            status.put("leaderUrl", leaderUrl);
+            status.put("leaderEpoch", leaderEpoch);
+            status.put("snapshotsLoaded", snapshotsLoaded.get());
+            status.put("leaderVersion", Math.max(leaderVersion, version));
+            status.put("lag", Math.max(0, leaderVersion - version));
+            status.put("syncFailures", syncFailures.get());
+        } else {
+            status.put("epoch", epoch);
+            status.put("followers", followers);
+        }
+        return status;
+    }
+
+    /** A queued leader write; every field but {@code change} is guarded by the service lock. */
+    private static final class PendingWrite {
+        final LongFunction<CatalogChange> change;
+        CatalogChange committed;
+        RuntimeException failure;
+        boolean done;
+
+        PendingWrite(LongFunction<CatalogChange> change) {
+            this.change = change;
+        }
+    }
+}
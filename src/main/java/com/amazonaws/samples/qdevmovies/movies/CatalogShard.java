@@ -0,0 +1,106 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which part of the catalog this instance owns.
+ *
+ * Movie IDs are hashed to 32 bits and the hash space is cut into {@code shard-count} equal,
+ * contiguous ranges; this instance keeps only the movies whose hash falls into range
+ * {@code shard-index}. {@code movies.sharding.nodes} lists the base URL of every shard,
+ * in shard order, so any instance can route a request to the owner of an ID.
+ */
+@Component
+public class CatalogShard {
+
+    private final int shardIndex;
+    private final int shardCount;
+    private final List<String> nodes;
+
+    @Autowired
+    public CatalogShard(@Value("${movies.sharding.shard-index:0}") int shardIndex,
+                        @Value("${movies.sharding.shard-count:1}") int shardCount,
+                        @Value("${movies.sharding.nodes:}") String nodes) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException(
+                    "Shard index " + shardIndex + " must be within a shard count of " + shardCount);
+        }
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.nodes = parseNodes(nodes);
+        if (shardCount > 1 && this.nodes.size() != shardCount) {
+            throw new IllegalArgumentException("Expected " + shardCount
+                    + " entries in movies.sharding.nodes but found " + this.nodes.size());
+        }
+    }
+
+    /**
+     * A single shard that owns the whole catalog.
+     */
+    public static CatalogShard unsharded() {
+        return new CatalogShard(0, 1, "");
+    }
+
+    private static List<String> parseNodes(String nodes) {
+        List<String> parsed = new ArrayList<>();
+        if (nodes != null) {
+            for (String node : nodes.split(",")) {
+                String trimmed = node.trim();
+                if (!trimmed.isEmpty()) {
+                    parsed.add(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+                }
+            }
+        }
+        return Collections.unmodifiableList(parsed);
+    }
+
+    /**
+     * Shard that owns the movie ID.
+     */
+    public int shardFor(long movieId) {
+        long hash = mix(movieId) & 0xFFFFFFFFL;
+        return (int) ((hash * shardCount) >>> 32);
+    }
+
+    public boolean owns(long movieId) {
+        return shardCount == 1 || shardFor(movieId) == shardIndex;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /** Base URL of every shard, in shard order. Empty when not sharded. */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public String nodeFor(int shard) {
+        return nodes.get(shard);
+    }
+
+    /** Finalizer from MurmurHash3, so sequential IDs spread evenly across ranges. */
+    private static int mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,94 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.StringInterner;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The leader's whole catalog and reviews at one version. Followers load it instead of the
+ * change log when the log cannot bring them up to date: the leader restarted with a new epoch,
+ * or the changes they need have been compacted away.
+ */
+public class CatalogSnapshot {
+
+    private final String epoch;
+    private final long version;
+    private final List<Movie> movies;
+    private final Map<Long, List<Review>> reviewsByMovie;
+
+    public CatalogSnapshot(String epoch, long version, List<Movie> movies, Map<Long, List<Review>> reviewsByMovie) {
+        this.epoch = epoch;
+        this.version = version;
+        this.movies = movies;
+        this.reviewsByMovie = reviewsByMovie;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /** Reviews per movie, in arrival order. */
+    public Map<Long, List<Review>> getReviewsByMovie() {
+        return reviewsByMovie;
+    }
+
+    /**
+     * Wire format, using the movie and review fields of {@link CatalogChange}.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("epoch", epoch);
+        map.put("version", version);
+        List<Map<String, Object>> movieMaps = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            movieMaps.add(CatalogChange.movieToMap(movie));
+        }
+        map.put("movies", movieMaps);
+        Map<String, Object> reviewMaps = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+            List<Map<String, Object>> reviews = new ArrayList<>(entry.getValue().size());
+            for (Review review : entry.getValue()) {
+                reviews.add(CatalogChange.reviewToMap(review));
+            }
+            reviewMaps.put(String.valueOf(entry.getKey()), reviews);
+        }
+        map.put("reviews", reviewMaps);
+        return map;
+    }
+
+    public static CatalogSnapshot fromJson(JSONObject json) {
+        // A snapshot is a full catalog load, so it shares repeated strings like the startup load.
+        // The pools are garbage once this returns; only the parsed movies and reviews keep their strings.
+        StringInterner catalogStrings = new StringInterner();
+        StringInterner reviewStrings = new StringInterner();
+        JSONArray movieArray = json.getJSONArray("movies");
+        List<Movie> movies = new ArrayList<>(movieArray.length());
+        for (int i = 0; i < movieArray.length(); i++) {
+            movies.add(MovieService.parseMovie(movieArray.getJSONObject(i), catalogStrings));
+        }
+        JSONObject reviewObject = json.getJSONObject("reviews");
+        Map<Long, List<Review>> reviewsByMovie = new LinkedHashMap<>();
+        for (String movieId : reviewObject.keySet()) {
+            JSONArray reviewArray = reviewObject.getJSONArray(movieId);
+            List<Review> reviews = new ArrayList<>(reviewArray.length());
+            for (int i = 0; i < reviewArray.length(); i++) {
+                reviews.add(ReviewService.parseReview(reviewArray.getJSONObject(i), reviewStrings));
+            }
+            reviewsByMovie.put(Long.parseLong(movieId), reviews);
+        }
+        return new CatalogSnapshot(json.getString("epoch"), json.getLong("version"), movies, reviewsByMovie);
+    }
+}
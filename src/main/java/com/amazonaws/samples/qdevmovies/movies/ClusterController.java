@@ -0,0 +1,124 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whole-catalog endpoints that any instance can coordinate, whichever shard it owns.
+ */
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+    private static final Logger logger = LogManager.getLogger(ClusterController.class);
+
+    @Autowired
+    private CatalogShard catalogShard;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ShardedSearchCoordinator shardedSearchCoordinator;
+
+    /**
+     * Scatter-gather search over every shard. Takes the same parameters as {@code /api/movies/search}.
+     */
+    @GetMapping("/movies/search")
+    public ShardedSearchResult search(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration) {
+        return shardedSearchCoordinator.search(MoviesApiController.toCriteria(name, id, genre, director,
+                minYear, maxYear, minRating, maxRating, minDuration, maxDuration));
+    }
+
+    /**
+     * A movie from whichever shard owns it.
+     */
+    @GetMapping("/movies/{id}")
+    public ResponseEntity<Movie> getMovie(@PathVariable("id") Long id) {
+        return shardedSearchCoordinator.getMovieById(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Search only this instance's shard. Called by coordinators, which have already admitted the
+     * search, so calls from cluster nodes skip the per-client rate limit; all calls take a slot
+     * from the concurrency limiter.
+     */
+    @GetMapping("/shard/search")
+    public List<Movie> searchShard(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration) {
+        return movieService.searchMovieTreasures(MoviesApiController.toCriteria(name, id, genre, director,
+                minYear, maxYear, minRating, maxRating, minDuration, maxDuration));
+    }
+
+    /**
+     * A movie from this instance's shard, 404 if it is not here.
+     */
+    @GetMapping("/shard/movies/{id}")
+    public ResponseEntity<Movie> getShardMovie(@PathVariable("id") Long id) {
+        return movieService.getMovieById(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Which shard this instance owns and how many movies it holds.
+     */
+    @GetMapping("/shard")
+    public Map<String, Object> getShard() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("shardIndex", catalogShard.getShardIndex());
+        info.put("shardCount", catalogShard.getShardCount());
+        info.put("nodes", catalogShard.getNodes());
+        info.put("localMovies", movieService.getAllMovies().size());
+        return info;
+    }
+
+    @ExceptionHandler(InvalidSearchParametersException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleInvalidSearch(InvalidSearchParametersException e) {
+        logger.warn("Invalid search parameters provided: {}", e.getMessage());
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    @ExceptionHandler(MovieServiceException.class)
+    @ResponseStatus(HttpStatus.BAD_GATEWAY)
+    public Map<String, String> handleShardFailure(MovieServiceException e) {
+        logger.error("Shard request failed: {}", e.getMessage());
+        return Collections.singletonMap("message", e.getMessage());
+    }
+}
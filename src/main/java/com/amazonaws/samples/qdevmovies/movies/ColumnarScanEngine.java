@@ -0,0 +1,100 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Scans primitive catalog columns for filters no index covers.
+ *
+ * The catalog is split into fixed-size segments that are filtered independently, in parallel
+ * on the fork-join common pool once the catalog is large enough. Within a segment each filter
+ * is one branch-free loop over a primitive array that ANDs into a byte mask, which keeps the
+ * hot loop simple enough for the JIT to unroll and vectorize. Matching positions are collected
+ * per segment and concatenated in segment order, so results stay in catalog order.
+ */
+public class ColumnarScanEngine {
+
+    static final int SEGMENT_SIZE = 8192;
+
+    /** Below this many segments the fork-join hand-off costs more than it saves. */
+    static final int PARALLEL_SEGMENTS = 4;
+
+    /**
+     * Positions in {@code [0, rows)} that pass every filter, in ascending order.
+     */
+    public static int[] scan(int rows, List<ColumnFilter> filters) {
+        int segments = (rows + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        IntStream segmentIds = IntStream.range(0, segments);
+        if (segments >= PARALLEL_SEGMENTS) {
+            segmentIds = segmentIds.parallel();
+        }
+        int[][] matches = segmentIds
+                .mapToObj(segment -> scanSegment(segment * SEGMENT_SIZE,
+                        Math.min(rows, (segment + 1) * SEGMENT_SIZE), filters))
+                .toArray(int[][]::new);
+
+        int total = 0;
+        for (int[] segmentMatches : matches) {
+            total += segmentMatches.length;
+        }
+        int[] positions = new int[total];
+        int n = 0;
+        for (int[] segmentMatches : matches) {
+            System.arraycopy(segmentMatches, 0, positions, n, segmentMatches.length);
+            n += segmentMatches.length;
+        }
+        return positions;
+    }
+
+    private static int[] scanSegment(int from, int to, List<ColumnFilter> filters) {
+        byte[] mask = new byte[to - from];
+        Arrays.fill(mask, (byte) 1);
+        for (ColumnFilter filter : filters) {
+            filter.apply(mask, from, to);
+        }
+        int count = 0;
+        for (byte bit : mask) {
+            count += bit;
+        }
+        int[] positions = new int[count];
+        int n = 0;
+        for (int i = 0; i < mask.length && n < count; i++) {
+            if (mask[i] != 0) {
+                positions[n++] = from + i;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * A filter over one primitive column that clears mask entries for rows it rejects.
+     * {@code mask[i]} corresponds to catalog position {@code from + i}.
+     */
+    public interface ColumnFilter {
+        void apply(byte[] mask, int from, int to);
+    }
+
+    /** Inclusive {@code min <= value <= max} over a double column. */
+    static ColumnFilter range(final double[] values, final double min, final double max) {
+        return (mask, from, to) -> {
+            for (int i = from; i < to; i++) {
+                double v = values[i];
+                mask[i - from] &= (byte) ((v >= min ? 1 : 0) & (v <= max ? 1 : 0));
+            }
+        };
+    }
+
+    /** Dictionary-encoded column: keeps rows whose value id is set in {@code accepted}. */
+    static ColumnFilter lookup(final int[] valueIds, final boolean[] accepted) {
+        final byte[] table = new byte[accepted.length];
+        for (int v = 0; v < accepted.length; v++) {
+            table[v] = (byte) (accepted[v] ? 1 : 0);
+        }
+        return (mask, from, to) -> {
+            for (int i = from; i < to; i++) {
+                mask[i - from] &= table[valueIds[i]];
+            }
+        };
+    }
+}
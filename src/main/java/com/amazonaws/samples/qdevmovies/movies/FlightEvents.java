@@ -0,0 +1,190 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Emits the service's flight recorder events when the JVM has {@code jdk.jfr}, and does nothing
+ * when it does not. The project targets Java 8, where older or non-OpenJDK builds lack JFR, so
+ * nothing outside this class and {@link FlightRecorderService} refers to a {@code jdk.jfr} type.
+ *
+ * An event in progress is handed back as an opaque {@code Object}, or null when JFR is missing
+ * or no recording wants the event; the other methods ignore null. The event classes are only
+ * touched from {@link Jfr}, which the JVM loads on first use, after {@link #SUPPORTED} is checked.
+ */
+final class FlightEvents {
+
+    /** True when {@code jdk.jfr} can be loaded; every other member is a no-op otherwise. */
+    static final boolean SUPPORTED = isSupported();
+
+    /** Names of the service's events, for recording settings. */
+    static final List<String> EVENT_NAMES = Arrays.asList(
+            "com.amazonaws.samples.qdevmovies.CatalogLoad",
+            "com.amazonaws.samples.qdevmovies.MovieSearch",
+            "com.amazonaws.samples.qdevmovies.ReviewLoad",
+            "com.amazonaws.samples.qdevmovies.PageRender");
+
+    private FlightEvents() {
+    }
+
+    private static boolean isSupported() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static Object beginCatalogLoad() {
+        return SUPPORTED ? Jfr.begin(Jfr.CATALOG_LOAD) : null;
+    }
+
+    static void commitCatalogLoad(Object event, String source, int movieCount) {
+        if (event != null) {
+            Jfr.commitCatalogLoad(event, source, movieCount);
+        }
+    }
+
+    static Object beginSearch() {
+        return SUPPORTED ? Jfr.begin(Jfr.SEARCH) : null;
+    }
+
+    static void commitSearch(Object event, MovieSearchCriteria criteria, MovieQueryPlan plan, int resultCount) {
+        if (event != null) {
+            Jfr.commitSearch(event, criteria, plan, resultCount);
+        }
+    }
+
+    static Object beginReviewLoad() {
+        return SUPPORTED ? Jfr.begin(Jfr.REVIEW_LOAD) : null;
+    }
+
+    static void commitReviewLoad(Object event, String source, int reviewCount) {
+        if (event != null) {
+            Jfr.commitReviewLoad(event, source, reviewCount);
+        }
+    }
+
+    static void commitReviewPage(Object event, long movieId, ReviewSort sort, ReviewPage page) {
+        if (event != null) {
+            Jfr.commitReviewPage(event, movieId, sort, page);
+        }
+    }
+
+    static Object beginPageRender() {
+        return SUPPORTED ? Jfr.begin(Jfr.PAGE_RENDER) : null;
+    }
+
+    static void setPageView(Object event, String view) {
+        if (event != null) {
+            Jfr.setPageView(event, view);
+        }
+    }
+
+    static void commitPageRender(Object event, String path, int status, long renderDuration) {
+        if (event != null) {
+            Jfr.commitPageRender(event, path, status, renderDuration);
+        }
+    }
+
+    /**
+     * The calls into {@code jdk.jfr}. Events cross into and out of this class as {@code Object}
+     * so that verifying {@link FlightEvents} never loads an event class. Fields are only filled
+     * in for events that will be committed, so a disabled event costs no string building.
+     */
+    private static final class Jfr {
+        static final int CATALOG_LOAD = 0;
+        static final int SEARCH = 1;
+        static final int REVIEW_LOAD = 2;
+        static final int PAGE_RENDER = 3;
+
+        /**
+         * @return The started event, or null if it is disabled in every running recording
+         */
+        static Object begin(int type) {
+            jdk.jfr.Event event;
+            switch (type) {
+                case CATALOG_LOAD:
+                    event = new CatalogLoadEvent();
+                    break;
+                case SEARCH:
+                    event = new MovieSearchEvent();
+                    break;
+                case REVIEW_LOAD:
+                    event = new ReviewLoadEvent();
+                    break;
+                default:
+                    event = new PageRenderEvent();
+                    break;
+            }
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        static void setPageView(Object pageRender, String view) {
+            ((PageRenderEvent) pageRender).view = view;
+        }
+
+        static void commitCatalogLoad(Object catalogLoad, String source, int movieCount) {
+            CatalogLoadEvent event = (CatalogLoadEvent) catalogLoad;
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source;
+                event.movieCount = movieCount;
+                event.commit();
+            }
+        }
+
+        static void commitSearch(Object search, MovieSearchCriteria criteria, MovieQueryPlan plan, int resultCount) {
+            MovieSearchEvent event = (MovieSearchEvent) search;
+            event.end();
+            if (event.shouldCommit()) {
+                event.criteria = criteria.toString();
+                event.accessPath = plan.getAccessPath().name();
+                event.estimatedRows = plan.getEstimatedRows();
+                event.resultCount = resultCount;
+                event.commit();
+            }
+        }
+
+        static void commitReviewLoad(Object reviewLoad, String source, int reviewCount) {
+            ReviewLoadEvent event = (ReviewLoadEvent) reviewLoad;
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source;
+                event.reviewCount = reviewCount;
+                event.totalReviews = reviewCount;
+                event.commit();
+            }
+        }
+
+        static void commitReviewPage(Object reviewLoad, long movieId, ReviewSort sort, ReviewPage page) {
+            ReviewLoadEvent event = (ReviewLoadEvent) reviewLoad;
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = "index";
+                event.movieId = movieId;
+                event.sort = sort.getParameter();
+                event.page = page.getPage();
+                event.reviewCount = page.getReviews().size();
+                event.totalReviews = page.getTotalReviews();
+                event.commit();
+            }
+        }
+
+        static void commitPageRender(Object pageRender, String path, int status, long renderDuration) {
+            PageRenderEvent event = (PageRenderEvent) pageRender;
+            event.end();
+            if (event.shouldCommit()) {
+                event.renderDuration = renderDuration;
+                event.path = path;
+                event.status = status;
+                event.commit();
+            }
+        }
+    }
+}
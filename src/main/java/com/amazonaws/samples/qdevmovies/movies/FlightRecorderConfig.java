@@ -0,0 +1,17 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the page render interceptor that feeds the flight recorder.
+ */
+@Configuration
+public class FlightRecorderConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PageRenderInterceptor());
+    }
+}
@@ -0,0 +1,243 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts, stops and snapshots a bounded JDK Flight Recorder recording of this instance.
+ *
+ * The recording holds the service's own events (catalog loads, searches, review loads and page
+ * renders) plus the JVM events of the configured JFR settings, which default to the low
+ * overhead "default" profile. Old data is discarded past the maximum age or size, so with
+ * {@code movies.profiling.continuous} the recording can stay on and be downloaded when p99
+ * regresses. On a Java 8 runtime without {@code jdk.jfr} the service reports itself unavailable
+ * and every {@code jdk.jfr} call is skipped, so the rest of the app still starts. Like
+ * {@link FlightEvents}, only the nested {@link Jfr} class names {@code jdk.jfr} types, so
+ * reflecting on this bean's fields and methods never loads them.
+ */
+@Service
+public class FlightRecorderService {
+    private static final Logger logger = LogManager.getLogger(FlightRecorderService.class);
+
+    static final String RECORDING_NAME = "movies";
+    /** Settings value that records only the service's own events. */
+    static final String NO_JVM_SETTINGS = "none";
+
+    /**
+     * JVM events of the stock profiles that copy the process's environment and system properties
+     * into the file. Those hold credentials, and the file leaves the host on download.
+     */
+    static final List<String> SECRET_EVENTS = Arrays.asList("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+
+    private final long defaultMaxAgeMinutes;
+    private final long defaultMaxSizeMb;
+    private final String settingsName;
+    private final long thresholdMillis;
+    private final boolean continuous;
+
+    /** The {@code jdk.jfr.Recording}, or null before the first start. */
+    private Object recording;
+
+    public FlightRecorderService(
+            @Value("${movies.profiling.max-age-minutes:30}") long defaultMaxAgeMinutes,
+            @Value("${movies.profiling.max-size-mb:64}") long defaultMaxSizeMb,
+            @Value("${movies.profiling.settings:default}") String settingsName,
+            @Value("${movies.profiling.threshold-millis:0}") long thresholdMillis,
+            @Value("${movies.profiling.continuous:false}") boolean continuous) {
+        this.defaultMaxAgeMinutes = defaultMaxAgeMinutes;
+        this.defaultMaxSizeMb = defaultMaxSizeMb;
+        this.settingsName = settingsName;
+        this.thresholdMillis = thresholdMillis;
+        this.continuous = continuous;
+    }
+
+    @PostConstruct
+    void startContinuous() {
+        if (!continuous) {
+            return;
+        }
+        if (!isAvailable()) {
+            logger.warn("Continuous flight recording is on, but this JVM has no flight recorder");
+            return;
+        }
+        start(null, null);
+    }
+
+    /**
+     * Start a recording, replacing a stopped one that has not been downloaded.
+     *
+     * @param maxAgeMinutes Data older than this is discarded; null for the configured default
+     * @param maxSizeMb Oldest data is discarded past this size; null for the configured default
+     * @throws IllegalStateException if a recording is already running or JFR is unavailable
+     */
+    public synchronized Map<String, Object> start(Long maxAgeMinutes, Long maxSizeMb) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Flight recorder is not available in this JVM");
+        }
+        if (isRunning()) {
+            throw new IllegalStateException("A recording is already running");
+        }
+        long maxAge = maxAgeMinutes != null ? maxAgeMinutes : defaultMaxAgeMinutes;
+        long maxSize = maxSizeMb != null ? maxSizeMb : defaultMaxSizeMb;
+        if (maxAge <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("maxAgeMinutes and maxSizeMb must be positive");
+        }
+        if (recording != null) {
+            Jfr.close(recording);
+        }
+        recording = Jfr.start(settings(), maxAge, maxSize);
+        logger.info("Flight recording started, keeping up to {} minutes and {} MB", maxAge, maxSize);
+        return getStatus();
+    }
+
+    /**
+     * Stop the running recording. It stays available for download until the next start.
+     *
+     * @throws IllegalStateException if no recording is running
+     */
+    public synchronized Map<String, Object> stop() {
+        if (!isRunning()) {
+            throw new IllegalStateException("No recording is running");
+        }
+        Jfr.stop(recording);
+        logger.info("Flight recording stopped");
+        return getStatus();
+    }
+
+    /**
+     * Write the recording to a temporary file, which the caller deletes. A running recording
+     * keeps running; the file is a snapshot of what it holds so far.
+     *
+     * @throws IllegalStateException if nothing has been recorded since startup
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No recording to download");
+        }
+        Path file = Files.createTempFile("movies-", ".jfr");
+        try {
+            Jfr.dump(recording, file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("available", isAvailable());
+        status.put("state", recording == null ? "NONE" : Jfr.state(recording));
+        status.put("settings", settingsName);
+        if (recording != null) {
+            Jfr.putStatus(recording, status);
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            Jfr.close(recording);
+            recording = null;
+        }
+    }
+
+    /** Checks for {@code jdk.jfr} before touching it; its classes are missing on some Java 8 runtimes. */
+    private static boolean isAvailable() {
+        return FlightEvents.SUPPORTED && Jfr.isAvailable();
+    }
+
+    private boolean isRunning() {
+        return recording != null && "RUNNING".equals(Jfr.state(recording));
+    }
+
+    /**
+     * The JFR settings profile with the service's events turned on, without stack traces to
+     * keep them cheap enough for every request, and with the {@link #SECRET_EVENTS} turned off.
+     */
+    Map<String, String> settings() {
+        Map<String, String> settings = new HashMap<>();
+        if (!NO_JVM_SETTINGS.equals(settingsName)) {
+            try {
+                settings.putAll(Jfr.settings(settingsName));
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("Unknown flight recorder settings: " + settingsName, e);
+            }
+        }
+        for (String name : FlightEvents.EVENT_NAMES) {
+            settings.put(name + "#enabled", "true");
+            settings.put(name + "#threshold", thresholdMillis + " ms");
+            settings.put(name + "#stackTrace", "false");
+        }
+        for (String name : SECRET_EVENTS) {
+            settings.put(name + "#enabled", "false");
+        }
+        return settings;
+    }
+
+    /**
+     * The calls into {@code jdk.jfr}. The recording crosses into and out of this class as
+     * {@code Object}, so the JVM only loads this class, and with it {@code jdk.jfr}, once
+     * {@link #isAvailable()} has checked for it.
+     */
+    private static final class Jfr {
+
+        static boolean isAvailable() {
+            return jdk.jfr.FlightRecorder.isAvailable();
+        }
+
+        static Map<String, String> settings(String name) throws IOException, ParseException {
+            return jdk.jfr.Configuration.getConfiguration(name).getSettings();
+        }
+
+        static Object start(Map<String, String> settings, long maxAgeMinutes, long maxSizeMb) {
+            jdk.jfr.Recording recording = new jdk.jfr.Recording(settings);
+            recording.setName(RECORDING_NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            recording.setMaxSize(maxSizeMb * 1024 * 1024);
+            recording.start();
+            return recording;
+        }
+
+        static void stop(Object recording) {
+            ((jdk.jfr.Recording) recording).stop();
+        }
+
+        static void dump(Object recording, Path file) throws IOException {
+            ((jdk.jfr.Recording) recording).dump(file);
+        }
+
+        static void close(Object recording) {
+            ((jdk.jfr.Recording) recording).close();
+        }
+
+        static String state(Object recording) {
+            return ((jdk.jfr.Recording) recording).getState().name();
+        }
+
+        static void putStatus(Object handle, Map<String, Object> status) {
+            jdk.jfr.Recording recording = (jdk.jfr.Recording) handle;
+            status.put("startTime", String.valueOf(recording.getStartTime()));
+            status.put("maxAgeMinutes", recording.getMaxAge() == null ? null : recording.getMaxAge().toMinutes());
+            status.put("maxSizeMb", recording.getMaxSize() / (1024 * 1024));
+            status.put("sizeBytes", recording.getSize());
+        }
+    }
+}
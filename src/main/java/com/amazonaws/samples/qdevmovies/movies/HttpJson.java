@@ -0,0 +1,56 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * Minimal JSON-over-HTTP calls between instances of this application.
+ */
+final class HttpJson {
+
+    private HttpJson() {
+    }
+
+    /**
+     * @return The response body, or null for a 404
+     */
+    static String get(String url, int timeoutMillis) throws IOException {
+        return send("GET", url, timeoutMillis);
+    }
+
+    /**
+     * POST without a body, for notifications.
+     *
+     * @return The response body, or null for a 404
+     */
+    static String post(String url, int timeoutMillis) throws IOException {
+        return send("POST", url, timeoutMillis);
+    }
+
+    private static String send(String method, String url, int timeoutMillis) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException(url + " answered with HTTP " + status);
+            }
+            try (InputStream in = connection.getInputStream();
+                 Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+                return scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link ShardClient} over the shard-local endpoints of {@link ClusterController}.
+ */
+@Component
+public class HttpShardClient implements ShardClient {
+
+    @Override
+    public List<Movie> search(String nodeUrl, MovieSearchCriteria criteria, int timeoutMillis) throws IOException {
+        StringBuilder url = new StringBuilder(nodeUrl).append("/api/cluster/shard/search");
+        char separator = '?';
+        for (Map.Entry<String, Object> entry : criteria.toMap().entrySet()) {
+            url.append(separator).append(entry.getKey()).append('=')
+                    .append(URLEncoder.encode(String.valueOf(entry.getValue()), StandardCharsets.UTF_8.name()));
+            separator = '&';
+        }
+        String body = HttpJson.get(url.toString(), timeoutMillis);
+        if (body == null) {
+            throw new IOException(nodeUrl + " does not serve shard searches");
+        }
+        JSONArray moviesArray = new JSONArray(body);
+        List<Movie> movies = new ArrayList<>(moviesArray.length());
+        for (int i = 0; i < moviesArray.length(); i++) {
+            movies.add(MovieService.parseMovie(moviesArray.getJSONObject(i)));
+        }
+        return movies;
+    }
+
+    @Override
+    public Optional<Movie> getMovie(String nodeUrl, long id, int timeoutMillis) throws IOException {
+        String body = HttpJson.get(nodeUrl + "/api/cluster/shard/movies/" + id, timeoutMillis);
+        return body == null ? Optional.empty() : Optional.of(MovieService.parseMovie(new JSONObject(body)));
+    }
+}
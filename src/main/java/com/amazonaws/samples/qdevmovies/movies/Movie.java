@@ -2,6 +2,8 @@ package com.amazonaws.samples.qdevmovies.movies;
 
 import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
 
+import java.nio.charset.StandardCharsets;
+
 public class Movie {
 
     private final long id;
@@ -9,7 +11,8 @@ public class Movie {
     private final String director;
     private final int year;
     private final String genre;
-    private final String description;
+    /** UTF-8; descriptions are long and rarely read, so they are decoded on access. */
+    private final byte[] description;
     private final int duration;
     private final double imdbRating;
 
@@ -19,7 +22,7 @@ public class Movie {
         this.director = director;
         this.year = year;
         this.genre = genre;
-        this.description = description;
+        this.description = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
         this.duration = duration;
         this.imdbRating = imdbRating;
     }
@@ -45,6 +48,11 @@ public class Movie {
     }
 
     public String getDescription() {
+        return this.description == null ? null : new String(this.description, StandardCharsets.UTF_8);
+    }
+
+    /** The stored UTF-8 form, without decoding; not to be modified. */
+    byte[] getDescriptionUtf8() {
         return this.description;
     }
 
@@ -0,0 +1,247 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-catalog statistics and secondary indexes used by the {@link MovieQueryPlanner}.
+ *
+ * Low-cardinality text columns (genre, director) keep one posting list per distinct value,
+ * which makes "contains" selectivity exact: only the distinct values are scanned.
+ * Numeric columns (year, rating, duration) keep positions sorted by value, so range counts
+ * are two binary searches. Positions always refer to the movie's index in catalog order.
+ */
+public class MovieCatalogStatistics {
+
+    static final int NAME_SAMPLE_SIZE = 512;
+
+    private final Movie[] catalog;
+    private final Map<Long, Integer> positionsById;
+    private final String[] lowerNames;
+    private final int[] nameSample;
+    private final TextColumn genres;
+    private final TextColumn directors;
+    private final RangeColumn years;
+    private final RangeColumn ratings;
+    private final RangeColumn durations;
+
+    public MovieCatalogStatistics(List<Movie> movies) {
+        this.catalog = movies.toArray(new Movie[0]);
+        this.positionsById = new HashMap<>(catalog.length * 2);
+        this.lowerNames = new String[catalog.length];
+        for (int i = 0; i < catalog.length; i++) {
+            positionsById.put(catalog[i].getId(), i);
+            lowerNames[i] = catalog[i].getMovieName().toLowerCase(Locale.ROOT);
+        }
+        this.nameSample = evenlySpacedSample(catalog.length, NAME_SAMPLE_SIZE);
+        this.genres = new TextColumn(catalog, Movie::getGenre);
+        this.directors = new TextColumn(catalog, Movie::getDirector);
+        this.years = new RangeColumn(catalog, Movie::getYear);
+        this.ratings = new RangeColumn(catalog, Movie::getImdbRating);
+        this.durations = new RangeColumn(catalog, Movie::getDuration);
+    }
+
+    private static int[] evenlySpacedSample(int size, int sampleSize) {
+        int n = Math.min(size, sampleSize);
+        int[] sample = new int[n];
+        for (int i = 0; i < n; i++) {
+            sample[i] = (int) ((long) i * size / n);
+        }
+        return sample;
+    }
+
+    public int size() {
+        return catalog.length;
+    }
+
+    Movie movieAt(int position) {
+        return catalog[position];
+    }
+
+    /** Catalog position for the movie ID, or -1. */
+    int positionOf(long id) {
+        Integer position = positionsById.get(id);
+        return position == null ? -1 : position;
+    }
+
+    String lowerNameAt(int position) {
+        return lowerNames[position];
+    }
+
+    int[] getNameSample() {
+        return nameSample;
+    }
+
+    TextColumn getGenres() {
+        return genres;
+    }
+
+    TextColumn getDirectors() {
+        return directors;
+    }
+
+    RangeColumn getYears() {
+        return years;
+    }
+
+    RangeColumn getRatings() {
+        return ratings;
+    }
+
+    RangeColumn getDurations() {
+        return durations;
+    }
+
+    /**
+     * Text column with few distinct values: distinct values, a posting list each, and the
+     * value id of every movie.
+     */
+    static final class TextColumn {
+        private final String[] distinctLower;
+        private final int[][] postings;
+        private final int[] valueIds;
+
+        private TextColumn(Movie[] catalog, Function<Movie, String> extractor) {
+            Map<String, List<Integer>> byValue = new LinkedHashMap<>();
+            for (int i = 0; i < catalog.length; i++) {
+                String value = extractor.apply(catalog[i]);
+                byValue.computeIfAbsent(value == null ? "" : value.toLowerCase(Locale.ROOT),
+                        k -> new ArrayList<>()).add(i);
+            }
+            this.distinctLower = byValue.keySet().toArray(new String[0]);
+            this.postings = new int[distinctLower.length][];
+            this.valueIds = new int[catalog.length];
+            int valueId = 0;
+            for (List<Integer> positions : byValue.values()) {
+                postings[valueId] = positions.stream().mapToInt(Integer::intValue).toArray();
+                for (int position : postings[valueId]) {
+                    valueIds[position] = valueId;
+                }
+                valueId++;
+            }
+        }
+
+        /** Which distinct values contain the (already lower-cased) fragment. */
+        boolean[] valuesContaining(String fragment) {
+            boolean[] matches = new boolean[distinctLower.length];
+            for (int v = 0; v < distinctLower.length; v++) {
+                matches[v] = distinctLower[v].contains(fragment);
+            }
+            return matches;
+        }
+
+        int count(boolean[] values) {
+            int count = 0;
+            for (int v = 0; v < values.length; v++) {
+                if (values[v]) {
+                    count += postings[v].length;
+                }
+            }
+            return count;
+        }
+
+        /** Union of the matching posting lists, in catalog order. */
+        int[] positions(boolean[] values) {
+            int[] positions = new int[count(values)];
+            int n = 0;
+            for (int v = 0; v < values.length; v++) {
+                if (values[v]) {
+                    System.arraycopy(postings[v], 0, positions, n, postings[v].length);
+                    n += postings[v].length;
+                }
+            }
+            Arrays.sort(positions);
+            return positions;
+        }
+
+        int valueIdAt(int position) {
+            return valueIds[position];
+        }
+
+        ColumnarScanEngine.ColumnFilter columnFilter(boolean[] values) {
+            return ColumnarScanEngine.lookup(valueIds, values);
+        }
+    }
+
+    /**
+     * Numeric column: the value of every movie plus positions sorted by value.
+     */
+    static final class RangeColumn {
+        private final double[] values;
+        private final double[] sortedValues;
+        private final int[] sortedPositions;
+
+        private RangeColumn(Movie[] catalog, ToDoubleFunction<Movie> extractor) {
+            this.values = new double[catalog.length];
+            Integer[] order = new Integer[catalog.length];
+            for (int i = 0; i < catalog.length; i++) {
+                values[i] = extractor.applyAsDouble(catalog[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+            this.sortedValues = new double[catalog.length];
+            this.sortedPositions = new int[catalog.length];
+            for (int i = 0; i < catalog.length; i++) {
+                sortedPositions[i] = order[i];
+                sortedValues[i] = values[order[i]];
+            }
+        }
+
+        double valueAt(int position) {
+            return values[position];
+        }
+
+        ColumnarScanEngine.ColumnFilter columnFilter(double min, double max) {
+            return ColumnarScanEngine.range(values, min, max);
+        }
+
+        /** Exact number of movies with min <= value <= max. */
+        int count(double min, double max) {
+            return Math.max(0, upperBound(max) - lowerBound(min));
+        }
+
+        /** Positions with min <= value <= max, in catalog order. */
+        int[] positions(double min, double max) {
+            int from = lowerBound(min);
+            int to = upperBound(max);
+            int[] positions = Arrays.copyOfRange(sortedPositions, from, Math.max(from, to));
+            Arrays.sort(positions);
+            return positions;
+        }
+
+        private int lowerBound(double value) {
+            int lo = 0;
+            int hi = sortedValues.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sortedValues[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int upperBound(double value) {
+            int lo = 0;
+            int hi = sortedValues.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sortedValues[mid] <= value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * An executable search plan: one access path that produces candidate positions, followed by
+ * the remaining predicates in the order the planner chose. Results are always in catalog order.
+ */
+public class MovieQueryPlan {
+
+    public enum AccessPath {
+        FULL_SCAN,
+        COLUMN_SCAN,
+        ID_LOOKUP,
+        GENRE_INDEX,
+        DIRECTOR_INDEX,
+        YEAR_INDEX,
+        RATING_INDEX,
+        DURATION_INDEX
+    }
+
+    private final MovieCatalogStatistics statistics;
+    private final MovieSearchCriteria criteria;
+    private final Predicate driver;
+    private final List<Predicate> columnPredicates;
+    private final List<Predicate> filters;
+
+    /**
+     * @param driver Index-backed predicate producing the candidates, or null
+     * @param columnPredicates Predicates answered together by a columnar scan when there is no driver
+     * @param filters Predicates checked per candidate, in evaluation order
+     */
+    MovieQueryPlan(MovieCatalogStatistics statistics, MovieSearchCriteria criteria,
+                   Predicate driver, List<Predicate> columnPredicates, List<Predicate> filters) {
+        this.statistics = statistics;
+        this.criteria = criteria;
+        this.driver = driver;
+        this.columnPredicates = columnPredicates;
+        this.filters = filters;
+    }
+
+    public AccessPath getAccessPath() {
+        if (driver != null) {
+            return driver.accessPath;
+        }
+        return columnPredicates.isEmpty() ? AccessPath.FULL_SCAN : AccessPath.COLUMN_SCAN;
+    }
+
+    /** Predicate descriptions in evaluation order, excluding the one answered by the access path. */
+    public List<String> getFilterOrder() {
+        List<String> order = new ArrayList<>(filters.size());
+        for (Predicate filter : filters) {
+            order.add(filter.description);
+        }
+        return order;
+    }
+
+    /** Estimated number of candidates produced by the access path. */
+    public long getEstimatedCandidates() {
+        if (driver != null) {
+            return driver.estimatedRows;
+        }
+        double rows = statistics.size();
+        for (Predicate predicate : columnPredicates) {
+            rows *= predicate.selectivity(statistics.size());
+        }
+        return Math.round(rows);
+    }
+
+    /** Estimated result size, assuming predicates are independent. */
+    public long getEstimatedRows() {
+        double rows = getEstimatedCandidates();
+        for (Predicate filter : filters) {
+            rows *= filter.selectivity(statistics.size());
+        }
+        return Math.round(rows);
+    }
+
+    public List<Movie> execute() {
+        if (driver == null && columnPredicates.isEmpty()) {
+            List<Movie> results = new ArrayList<>();
+            for (int position = 0; position < statistics.size(); position++) {
+                if (matchesFilters(position)) {
+                    results.add(statistics.movieAt(position));
+                }
+            }
+            return results;
+        }
+        int[] candidates = driver != null ? driver.positions.get() : columnScan();
+        if (candidates.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Movie> results = new ArrayList<>(candidates.length);
+        for (int position : candidates) {
+            if (matchesFilters(position)) {
+                results.add(statistics.movieAt(position));
+            }
+        }
+        return results;
+    }
+
+    private int[] columnScan() {
+        List<ColumnarScanEngine.ColumnFilter> columnFilters = new ArrayList<>(columnPredicates.size());
+        for (Predicate predicate : columnPredicates) {
+            columnFilters.add(predicate.columnFilter);
+        }
+        return ColumnarScanEngine.scan(statistics.size(), columnFilters);
+    }
+
+    private boolean matchesFilters(int position) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (!filters.get(i).matcher.test(position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Human-readable breakdown of the plan for debugging slow queries.
+     */
+    public Map<String, Object> explain() {
+        Map<String, Object> explain = new LinkedHashMap<>();
+        explain.put("criteria", criteria.toMap());
+        explain.put("catalogSize", statistics.size());
+        explain.put("accessPath", getAccessPath());
+        explain.put("accessPredicate", driver != null ? driver.description
+                : columnPredicates.isEmpty() ? null : describe(columnPredicates));
+        explain.put("estimatedCandidates", getEstimatedCandidates());
+        List<Map<String, Object>> steps = new ArrayList<>();
+        for (Predicate filter : filters) {
+            Map<String, Object> step = new LinkedHashMap<>();
+            step.put("predicate", filter.description);
+            step.put("cost", filter.cost);
+            step.put("estimatedSelectivity", filter.selectivity(statistics.size()));
+            steps.add(step);
+        }
+        explain.put("filters", steps);
+        explain.put("estimatedRows", getEstimatedRows());
+        return explain;
+    }
+
+    private static String describe(List<Predicate> predicates) {
+        StringBuilder sb = new StringBuilder();
+        for (Predicate predicate : predicates) {
+            if (sb.length() > 0) {
+                sb.append(" and ");
+            }
+            sb.append(predicate.description);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getAccessPath().name());
+        if (driver != null) {
+            sb.append('(').append(driver.description).append(')');
+        } else if (!columnPredicates.isEmpty()) {
+            sb.append('(').append(describe(columnPredicates)).append(')');
+        }
+        sb.append(" ~").append(getEstimatedCandidates()).append(" candidates");
+        for (Predicate filter : filters) {
+            sb.append(" -> ").append(filter.description);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One search predicate with its cost and cardinality estimate. Index-backed predicates
+     * can also produce their matching positions directly, and column-backed predicates can
+     * be evaluated by the {@link ColumnarScanEngine}.
+     */
+    static final class Predicate {
+        final String description;
+        final AccessPath accessPath;
+        final int cost;
+        final long estimatedRows;
+        final IntPredicate matcher;
+        final Supplier<int[]> positions;
+        final ColumnarScanEngine.ColumnFilter columnFilter;
+
+        Predicate(String description, AccessPath accessPath, int cost, long estimatedRows,
+                  IntPredicate matcher, Supplier<int[]> positions, ColumnarScanEngine.ColumnFilter columnFilter) {
+            this.description = description;
+            this.accessPath = accessPath;
+            this.cost = cost;
+            this.estimatedRows = estimatedRows;
+            this.matcher = matcher;
+            this.positions = positions;
+            this.columnFilter = columnFilter;
+        }
+
+        boolean isIndexable() {
+            return positions != null;
+        }
+
+        boolean isColumnar() {
+            return columnFilter != null;
+        }
+
+        double selectivity(int catalogSize) {
+            return catalogSize == 0 ? 0 : Math.min(1.0, (double) estimatedRows / catalogSize);
+        }
+
+        /** Classic predicate ordering rank: cheap predicates that reject most rows go first. */
+        double rank(int catalogSize) {
+            double rejected = 1 - selectivity(catalogSize);
+            return rejected <= 0 ? Double.MAX_VALUE : cost / rejected;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses how to answer a {@link MovieSearchCriteria}.
+ *
+ * Every criterion becomes a predicate with a per-row cost and a cardinality estimate taken
+ * from {@link MovieCatalogStatistics}. The most selective index-backed predicate drives the
+ * query if it narrows the catalog enough. Otherwise large catalogs evaluate every column-backed
+ * predicate with a parallel {@link ColumnarScanEngine} pass, and small ones are scanned row by row.
+ * The remaining predicates are ordered by cost / (1 - selectivity), so cheap predicates that
+ * reject most rows run first.
+ */
+public class MovieQueryPlanner {
+
+    /** Use an index only if it leaves at most this fraction of the catalog to check. */
+    static final double INDEX_THRESHOLD = 0.3;
+
+    /** Catalogs at least this large scan primitive columns instead of movie objects. */
+    static final int COLUMN_SCAN_THRESHOLD = 10_000;
+
+    private static final int LOOKUP_COST = 1;
+    private static final int NAME_COST = 4;
+
+    private final MovieCatalogStatistics statistics;
+    private final int columnScanThreshold;
+
+    public MovieQueryPlanner(MovieCatalogStatistics statistics) {
+        this(statistics, COLUMN_SCAN_THRESHOLD);
+    }
+
+    MovieQueryPlanner(MovieCatalogStatistics statistics, int columnScanThreshold) {
+        this.statistics = statistics;
+        this.columnScanThreshold = columnScanThreshold;
+    }
+
+    public MovieQueryPlan plan(MovieSearchCriteria criteria) {
+        List<MovieQueryPlan.Predicate> predicates = new ArrayList<>();
+        addIdPredicate(predicates, criteria.getId());
+        addTextPredicate(predicates, "genre", criteria.getGenre(),
+                statistics.getGenres(), MovieQueryPlan.AccessPath.GENRE_INDEX);
+        addTextPredicate(predicates, "director", criteria.getDirector(),
+                statistics.getDirectors(), MovieQueryPlan.AccessPath.DIRECTOR_INDEX);
+        addRangePredicate(predicates, "year", criteria.getMinYear(), criteria.getMaxYear(),
+                statistics.getYears(), MovieQueryPlan.AccessPath.YEAR_INDEX);
+        addRangePredicate(predicates, "imdbRating", criteria.getMinRating(), criteria.getMaxRating(),
+                statistics.getRatings(), MovieQueryPlan.AccessPath.RATING_INDEX);
+        addRangePredicate(predicates, "duration", criteria.getMinDuration(), criteria.getMaxDuration(),
+                statistics.getDurations(), MovieQueryPlan.AccessPath.DURATION_INDEX);
+        addNamePredicate(predicates, criteria.getName());
+
+        MovieQueryPlan.Predicate driver = null;
+        for (MovieQueryPlan.Predicate predicate : predicates) {
+            if (predicate.isIndexable() && (driver == null || predicate.estimatedRows < driver.estimatedRows)) {
+                driver = predicate;
+            }
+        }
+        if (driver != null && driver.estimatedRows > statistics.size() * INDEX_THRESHOLD) {
+            driver = null;
+        }
+        predicates.remove(driver);
+
+        List<MovieQueryPlan.Predicate> columnPredicates = new ArrayList<>();
+        if (driver == null && statistics.size() >= columnScanThreshold) {
+            for (MovieQueryPlan.Predicate predicate : predicates) {
+                if (predicate.isColumnar()) {
+                    columnPredicates.add(predicate);
+                }
+            }
+            predicates.removeAll(columnPredicates);
+        }
+
+        int size = statistics.size();
+        Comparator<MovieQueryPlan.Predicate> byRank = Comparator
+                .comparingDouble((MovieQueryPlan.Predicate p) -> p.rank(size))
+                .thenComparingInt(p -> p.cost);
+        columnPredicates.sort(byRank);
+        predicates.sort(byRank);
+        return new MovieQueryPlan(statistics, criteria, driver, columnPredicates, predicates);
+    }
+
+    private void addIdPredicate(List<MovieQueryPlan.Predicate> predicates, Long id) {
+        if (id == null) {
+            return;
+        }
+        final int position = statistics.positionOf(id);
+        predicates.add(new MovieQueryPlan.Predicate(
+                "id = " + id, MovieQueryPlan.AccessPath.ID_LOOKUP, LOOKUP_COST, position >= 0 ? 1 : 0,
+                p -> p == position,
+                () -> position >= 0 ? new int[] {position} : new int[0],
+                null));
+    }
+
+    private void addTextPredicate(List<MovieQueryPlan.Predicate> predicates, String field, String fragment,
+                                  MovieCatalogStatistics.TextColumn column, MovieQueryPlan.AccessPath accessPath) {
+        if (fragment == null) {
+            return;
+        }
+        // Resolving the fragment against distinct values once turns "contains" into a lookup per row
+        final boolean[] values = column.valuesContaining(fragment);
+        predicates.add(new MovieQueryPlan.Predicate(
+                field + " contains '" + fragment + "'", accessPath, LOOKUP_COST, column.count(values),
+                p -> values[column.valueIdAt(p)],
+                () -> column.positions(values),
+                column.columnFilter(values)));
+    }
+
+    private void addRangePredicate(List<MovieQueryPlan.Predicate> predicates, String field,
+                                   Number minValue, Number maxValue,
+                                   MovieCatalogStatistics.RangeColumn column, MovieQueryPlan.AccessPath accessPath) {
+        if (minValue == null && maxValue == null) {
+            return;
+        }
+        final double min = minValue == null ? Double.NEGATIVE_INFINITY : minValue.doubleValue();
+        final double max = maxValue == null ? Double.POSITIVE_INFINITY : maxValue.doubleValue();
+        predicates.add(new MovieQueryPlan.Predicate(
+                describeRange(field, minValue, maxValue), accessPath, LOOKUP_COST, column.count(min, max),
+                p -> {
+                    double value = column.valueAt(p);
+                    return value >= min && value <= max;
+                },
+                () -> column.positions(min, max),
+                column.columnFilter(min, max)));
+    }
+
+    private static String describeRange(String field, Number min, Number max) {
+        if (min == null) {
+            return field + " <= " + max;
+        }
+        if (max == null) {
+            return field + " >= " + min;
+        }
+        return field + " between " + min + " and " + max;
+    }
+
+    private void addNamePredicate(List<MovieQueryPlan.Predicate> predicates, String fragment) {
+        if (fragment == null) {
+            return;
+        }
+        predicates.add(new MovieQueryPlan.Predicate(
+                "name contains '" + fragment + "'", null, NAME_COST, estimateNameRows(fragment),
+                p -> statistics.lowerNameAt(p).contains(fragment),
+                null,
+                null));
+    }
+
+    /**
+     * Names are unique-ish, so there is no index; estimate from an evenly spaced sample instead.
+     */
+    private long estimateNameRows(String fragment) {
+        int[] sample = statistics.getNameSample();
+        if (sample.length == 0) {
+            return 0;
+        }
+        int matches = 0;
+        for (int position : sample) {
+            if (statistics.lowerNameAt(position).contains(fragment)) {
+                matches++;
+            }
+        }
+        if (sample.length == statistics.size()) {
+            return matches;
+        }
+        // Never estimate zero from a sample: an unseen fragment may still match somewhere
+        return Math.max(1, Math.round(Math.max(matches, 0.5) * statistics.size() / sample.length));
+    }
+}
@@ -0,0 +1,134 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Multi-criteria search request. Every criterion is optional; blank text is treated as absent.
+ * Text criteria are case-insensitive partial matches, range bounds are inclusive.
+ */
+public class MovieSearchCriteria {
+
+    private final String name;
+    private final Long id;
+    private final String genre;
+    private final String director;
+    private final Integer minYear;
+    private final Integer maxYear;
+    private final Double minRating;
+    private final Double maxRating;
+    private final Integer minDuration;
+    private final Integer maxDuration;
+
+    public MovieSearchCriteria(String name, Long id, String genre, String director,
+                               Integer minYear, Integer maxYear, Double minRating, Double maxRating,
+                               Integer minDuration, Integer maxDuration) {
+        this.name = normalizeText(name);
+        this.id = id;
+        this.genre = normalizeText(genre);
+        this.director = normalizeText(director);
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        validateRange("year", minYear, maxYear);
+        validateRange("rating", minRating, maxRating);
+        validateRange("duration", minDuration, maxDuration);
+    }
+
+    /**
+     * Criteria for the original name / id / genre treasure hunt.
+     */
+    public static MovieSearchCriteria of(String name, Long id, String genre) {
+        return new MovieSearchCriteria(name, id, genre, null, null, null, null, null, null, null);
+    }
+
+    private static String normalizeText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static <T extends Comparable<T>> void validateRange(String field, T min, T max) {
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new InvalidSearchParametersException(
+                    "Arrr! The minimum " + field + " be greater than the maximum, matey!");
+        }
+    }
+
+    /** Lower-cased, trimmed name fragment, or null. */
+    public String getName() {
+        return name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /** Lower-cased, trimmed genre fragment, or null. */
+    public String getGenre() {
+        return genre;
+    }
+
+    /** Lower-cased, trimmed director fragment, or null. */
+    public String getDirector() {
+        return director;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+
+    public Double getMaxRating() {
+        return maxRating;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public Integer getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Only the criteria that are set, for logs and explain output.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        putIfSet(map, "name", name);
+        putIfSet(map, "id", id);
+        putIfSet(map, "genre", genre);
+        putIfSet(map, "director", director);
+        putIfSet(map, "minYear", minYear);
+        putIfSet(map, "maxYear", maxYear);
+        putIfSet(map, "minRating", minRating);
+        putIfSet(map, "maxRating", maxRating);
+        putIfSet(map, "minDuration", minDuration);
+        putIfSet(map, "maxDuration", maxDuration);
+        return map;
+    }
+
+    private static void putIfSet(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one catalog search, with its criteria and how it was executed.
+ */
+@Name("com.amazonaws.samples.qdevmovies.MovieSearch")
+@Label("Movie Search")
+@Category("Movies")
+@Description("Search over this instance's catalog")
+class MovieSearchEvent extends jdk.jfr.Event {
+
+    @Label("Criteria")
+    String criteria;
+
+    @Label("Access Path")
+    String accessPath;
+
+    @Label("Estimated Rows")
+    long estimatedRows;
+
+    @Label("Results")
+    int resultCount;
+}
@@ -1,7 +1,10 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.amazonaws.samples.qdevmovies.utils.StringInterner;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -9,24 +12,116 @@ import org.apache.logging.log4j.Logger;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.TreeMap;
 
 @Service
+@DependsOn("flightRecorderService") // a continuous recording should include the startup load
 public class MovieService {
     private static final Logger logger = LogManager.getLogger(MovieService.class);
-    private final List<Movie> movies;
-    private final Map<Long, Movie> movieMap;
+    private static final long SLOW_SEARCH_MILLIS = 100;
+
+    private final CatalogShard shard;
+    private volatile Catalog catalog;
 
     public MovieService() {
-        this.movies = loadMoviesFromJson();
-        this.movieMap = new HashMap<>();
+        this(CatalogShard.unsharded());
+    }
+
+    /**
+     * Keep only the movies owned by this shard; the rest are served by the other instances.
+     */
+    @Autowired
+    public MovieService(CatalogShard shard) {
+        Object event = FlightEvents.beginCatalogLoad();
+        List<Movie> catalog = loadMoviesFromJson();
+        // Updates, snapshots and the sharded search's k-way merge all rely on ID order,
+        // whatever order movies.json lists the movies in
+        catalog.sort(Comparator.comparingLong(Movie::getId));
+        if (shard.isSharded()) {
+            List<Movie> owned = new ArrayList<>();
+            for (Movie movie : catalog) {
+                if (shard.owns(movie.getId())) {
+                    owned.add(movie);
+                }
+            }
+            logger.info("Shard {} of {} owns {} of {} movies",
+                    shard.getShardIndex(), shard.getShardCount(), owned.size(), catalog.size());
+            catalog = owned;
+        }
+        this.shard = shard;
+        this.catalog = new Catalog(catalog);
+        commitCatalogLoad(event, "movies.json");
+    }
+
+    /**
+     * One immutable version of the catalog with the indexes derived from it. Updates build a
+     * new version and publish it with a single volatile write, so readers never see a mix.
+     */
+    private static final class Catalog {
+        final List<Movie> movies;
+        final Map<Long, Movie> movieMap;
+        final MovieQueryPlanner queryPlanner;
+
+        Catalog(List<Movie> movies) {
+            this.movies = Collections.unmodifiableList(movies);
+            this.movieMap = new HashMap<>();
+            for (Movie movie : movies) {
+                movieMap.put(movie.getId(), movie);
+            }
+            this.queryPlanner = new MovieQueryPlanner(new MovieCatalogStatistics(movies));
+        }
+    }
+
+    /**
+     * Apply a batch of catalog changes and rebuild the search indexes once for the whole batch.
+     * Movies owned by another shard are ignored. The catalog stays in ID order.
+     *
+     * @param upserts Movies to add or replace
+     * @param removedIds IDs of movies to remove
+     */
+    public synchronized void updateCatalog(Collection<Movie> upserts, Collection<Long> removedIds) {
+        Object event = FlightEvents.beginCatalogLoad();
+        Map<Long, Movie> updated = new TreeMap<>(catalog.movieMap);
+        for (Movie movie : upserts) {
+            if (shard.owns(movie.getId())) {
+                updated.put(movie.getId(), movie);
+            }
+        }
+        for (Long id : removedIds) {
+            updated.remove(id);
+        }
+        this.catalog = new Catalog(new ArrayList<>(updated.values()));
+        commitCatalogLoad(event, "update");
+        logger.info("Treasure chest updated: {} upserts, {} removals, {} movies aboard",
+                   upserts.size(), removedIds.size(), updated.size());
+    }
+
+    /**
+     * Replace the whole catalog, keeping only the movies this shard owns.
+     */
+    public synchronized void replaceCatalog(Collection<Movie> movies) {
+        Object event = FlightEvents.beginCatalogLoad();
+        Map<Long, Movie> replaced = new TreeMap<>();
         for (Movie movie : movies) {
-            movieMap.put(movie.getId(), movie);
+            if (shard.owns(movie.getId())) {
+                replaced.put(movie.getId(), movie);
+            }
         }
+        this.catalog = new Catalog(new ArrayList<>(replaced.values()));
+        commitCatalogLoad(event, "snapshot");
+        logger.info("Treasure chest replaced: {} movies aboard", replaced.size());
+    }
+
+    private void commitCatalogLoad(Object event, String source) {
+        FlightEvents.commitCatalogLoad(event, source, catalog.movies.size());
     }
 
     private List<Movie> loadMoviesFromJson() {
@@ -38,19 +133,11 @@ public class MovieService {
                 String jsonContent = scanner.useDelimiter("\\A").next();
                 scanner.close();
                 
+                // Genres and directors repeat across movies; the pool lives only for this load
+                StringInterner strings = new StringInterner();
                 JSONArray moviesArray = new JSONArray(jsonContent);
                 for (int i = 0; i < moviesArray.length(); i++) {
-                    JSONObject movieObj = moviesArray.getJSONObject(i);
-                    movieList.add(new Movie(
-                        movieObj.getLong("id"),
-                        movieObj.getString("movieName"),
-                        movieObj.getString("director"),
-                        movieObj.getInt("year"),
-                        movieObj.getString("genre"),
-                        movieObj.getString("description"),
-                        movieObj.getInt("duration"),
-                        movieObj.getDouble("imdbRating")
-                    ));
+                    movieList.add(parseMovie(moviesArray.getJSONObject(i), strings));
                 }
             }
         } catch (Exception e) {
@@ -59,15 +146,37 @@ public class MovieService {
         return movieList;
     }
 
+    static Movie parseMovie(JSONObject movieObj) {
+        return parseMovie(movieObj, null);
+    }
+
+    /**
+     * @param strings Pool to share repeated genres and directors through, or null to keep them as parsed
+     */
+    static Movie parseMovie(JSONObject movieObj, StringInterner strings) {
+        String director = movieObj.getString("director");
+        String genre = movieObj.getString("genre");
+        return new Movie(
+            movieObj.getLong("id"),
+            movieObj.getString("movieName"),
+            strings != null ? strings.intern(director) : director,
+            movieObj.getInt("year"),
+            strings != null ? strings.intern(genre) : genre,
+            movieObj.getString("description"),
+            movieObj.getInt("duration"),
+            movieObj.getDouble("imdbRating")
+        );
+    }
+
     public List<Movie> getAllMovies() {
-        return movies;
+        return catalog.movies;
     }
 
     public Optional<Movie> getMovieById(Long id) {
         if (id == null || id <= 0) {
             return Optional.empty();
         }
-        return Optional.ofNullable(movieMap.get(id));
+        return Optional.ofNullable(catalog.movieMap.get(id));
     }
 
     /**
@@ -83,61 +192,41 @@ public class MovieService {
         logger.info("Ahoy! Starting treasure hunt with criteria - name: '{}', id: {}, genre: '{}'", 
                    name, id, genre);
         
-        List<Movie> treasureChest = new ArrayList<>();
-        
-        // If searching by ID, that takes priority - a specific treasure map!
-        if (id != null && id > 0) {
-            Optional<Movie> specificTreasure = getMovieById(id);
-            if (specificTreasure.isPresent()) {
-                // Check if the found treasure also matches other criteria
-                Movie movie = specificTreasure.get();
-                if (matchesSearchCriteria(movie, name, genre)) {
-                    treasureChest.add(movie);
-                    logger.info("Arrr! Found the exact treasure ye be lookin' for with ID: {}", id);
-                } else {
-                    logger.info("Found treasure with ID {}, but it doesn't match other search criteria, matey!", id);
-                }
-            } else {
-                logger.warn("Shiver me timbers! No treasure found with ID: {}", id);
-            }
-            return treasureChest;
-        }
-        
-        // Search through all our movie treasures
-        for (Movie movie : movies) {
-            if (matchesSearchCriteria(movie, name, genre)) {
-                treasureChest.add(movie);
-            }
-        }
+        // Non-positive IDs were never a valid treasure map, so they don't narrow the hunt
+        Long treasureMapId = id != null && id > 0 ? id : null;
+        List<Movie> treasureChest = searchMovieTreasures(MovieSearchCriteria.of(name, treasureMapId, genre));
         
         logger.info("Treasure hunt complete! Found {} movie treasures matching yer criteria", treasureChest.size());
         return treasureChest;
     }
-    
+
     /**
-     * Helper method to check if a movie matches the search criteria
-     * Like checking if a treasure matches what we're hunting for!
+     * Search with any combination of criteria. The query planner picks the most selective
+     * index (or a scan) to drive the search and orders the remaining predicates by cost.
+     *
+     * @param criteria Search criteria; unset criteria match everything
+     * @return Movies matching every criterion, in catalog order
      */
-    private boolean matchesSearchCriteria(Movie movie, String name, String genre) {
-        // Check name criteria (case-insensitive partial match)
-        if (name != null && !name.trim().isEmpty()) {
-            String movieName = movie.getMovieName().toLowerCase();
-            String searchName = name.trim().toLowerCase();
-            if (!movieName.contains(searchName)) {
-                return false;
-            }
-        }
-        
-        // Check genre criteria (case-insensitive partial match)
-        if (genre != null && !genre.trim().isEmpty()) {
-            String movieGenre = movie.getGenre().toLowerCase();
-            String searchGenre = genre.trim().toLowerCase();
-            if (!movieGenre.contains(searchGenre)) {
-                return false;
-            }
+    public List<Movie> searchMovieTreasures(MovieSearchCriteria criteria) {
+        Object event = FlightEvents.beginSearch();
+        long start = System.nanoTime();
+        MovieQueryPlan plan = catalog.queryPlanner.plan(criteria);
+        List<Movie> treasureChest = plan.execute();
+        FlightEvents.commitSearch(event, criteria, plan, treasureChest.size());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (elapsedMillis >= SLOW_SEARCH_MILLIS) {
+            logger.warn("Slow treasure hunt took {} ms, plan: {}", elapsedMillis, plan.explain());
+        } else {
+            logger.debug("Treasure hunt plan: {}", plan);
         }
-        
-        return true;
+        return treasureChest;
+    }
+
+    /**
+     * Describe how a search would be executed without running it.
+     */
+    public Map<String, Object> explainSearch(MovieSearchCriteria criteria) {
+        return catalog.queryPlanner.plan(criteria).explain();
     }
     
     /**
@@ -145,7 +234,7 @@ public class MovieService {
      * Perfect for helping landlubbers choose what kind of treasure they want!
      */
     public List<String> getAllGenres() {
-        return movies.stream()
+        return catalog.movies.stream()
                 .map(Movie::getGenre)
                 .distinct()
                 .sorted()
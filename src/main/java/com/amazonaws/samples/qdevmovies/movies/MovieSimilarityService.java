@@ -0,0 +1,444 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Arrr! "More like this" recommendations for the movie details page.
+ *
+ * Neighbours are precomputed in the background across all cores and stored in one
+ * flat {@code int[]} (TOP_N slots per movie), so serving is an O(1) slice lookup.
+ * To avoid comparing every pair of movies, candidates come from blocking buckets:
+ * shared genre tokens, shared director and MinHash/LSH bands over the movie's tokens.
+ * Oversized buckets fall back to a sorted-by-year window so work stays linear in catalog size.
+ */
+@Service
+public class MovieSimilarityService {
+    private static final Logger logger = LogManager.getLogger(MovieSimilarityService.class);
+
+    static final int TOP_N = 8;
+
+    static final int MINHASH_BANDS = 8;
+    static final int MINHASH_ROWS = 2;
+    static final int MAX_BUCKET_SIZE = 256;
+    static final int BUCKET_WINDOW = 32;
+
+    private static final double GENRE_WEIGHT = 0.35;
+    private static final double DIRECTOR_WEIGHT = 0.20;
+    private static final double YEAR_WEIGHT = 0.15;
+    private static final double DESCRIPTION_WEIGHT = 0.20;
+    private static final double REVIEW_WEIGHT = 0.10;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "for", "with", "his", "her", "their", "from", "into", "over", "who",
+            "that", "this", "they", "them", "must", "while", "when", "after", "through", "its"));
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+
+    /**
+     * Rebuilds run one at a time on their own thread, so they never park common-pool workers
+     * that the rebuild's parallel stream and the columnar scans need.
+     */
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "similar-movies");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Set while a rebuild is queued but not started; later requests join it. */
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    private volatile SimilarityIndex index = SimilarityIndex.EMPTY;
+    private volatile CompletableFuture<Void> pendingRebuild = CompletableFuture.completedFuture(null);
+
+    @Autowired
+    public MovieSimilarityService(MovieService movieService, ReviewService reviewService) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Kick off the neighbour precompute without holding up application startup.
+     * Until it completes, {@link #getSimilarMovies} simply returns no recommendations.
+     */
+    @PostConstruct
+    public void scheduleRebuild() {
+        synchronized (rebuildQueued) {
+            if (!rebuildQueued.compareAndSet(false, true)) {
+                return; // the queued rebuild has not read the catalog yet, so it will see this change too
+            }
+            pendingRebuild = CompletableFuture.runAsync(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            }, rebuildExecutor).exceptionally(e -> {
+                logger.error("Failed to precompute similar movies: {}", e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuild after movie changes; recommendations keep coming from the previous index until
+     * it completes. Review-only changes are skipped: they only move the small review-rating
+     * term, which picks up the current averages from {@link ReviewService} on the next rebuild.
+     */
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isMoviesChanged()) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Recompute neighbour lists for the whole catalog and publish them atomically.
+     * Rebuilds are serialized so the newest catalog is always published last.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<Movie> movies = movieService.getAllMovies();
+        Movie[] catalog = movies.toArray(new Movie[0]);
+        MovieFeatures[] features = extractFeatures(catalog);
+        CandidateBuckets buckets = buildBuckets(features);
+
+        int[] neighbors = new int[catalog.length * TOP_N];
+        Arrays.fill(neighbors, -1);
+        IntStream.range(0, catalog.length).parallel()
+                .forEach(i -> computeNeighbors(i, features, buckets, neighbors));
+
+        Map<Long, Integer> positions = new HashMap<>(catalog.length * 2);
+        for (int i = 0; i < catalog.length; i++) {
+            positions.put(catalog[i].getId(), i);
+        }
+        this.index = new SimilarityIndex(catalog, positions, neighbors);
+        logger.info("Charted similar treasures for {} movies in {} ms",
+                   catalog.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return index != SimilarityIndex.EMPTY;
+    }
+
+    /**
+     * Wait for the most recently scheduled rebuild to finish.
+     *
+     * @return Whether an index is available
+     */
+    public boolean awaitReady(long timeoutMillis) {
+        try {
+            pendingRebuild.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Similar movies still charting after {} ms", timeoutMillis);
+        } catch (ExecutionException e) {
+            // Already logged by the rebuild itself
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return isReady();
+    }
+
+    /**
+     * Most similar movies for the given movie, best match first.
+     *
+     * @param movieId Movie to find neighbours for
+     * @param limit Maximum number of movies, capped at {@value #TOP_N}
+     * @return Precomputed neighbours, or an empty list while the index is still being built
+     */
+    public List<Movie> getSimilarMovies(long movieId, int limit) {
+        SimilarityIndex current = this.index;
+        Integer position = current.positions.get(movieId);
+        if (position == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int base = position * TOP_N;
+        int count = Math.min(limit, TOP_N);
+        List<Movie> similar = new ArrayList<>(count);
+        for (int i = 0; i < count && current.neighbors[base + i] >= 0; i++) {
+            similar.add(current.catalog[current.neighbors[base + i]]);
+        }
+        return similar;
+    }
+
+    private MovieFeatures[] extractFeatures(Movie[] catalog) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        MovieFeatures[] features = new MovieFeatures[catalog.length];
+        for (int i = 0; i < catalog.length; i++) {
+            Movie movie = catalog[i];
+            features[i] = new MovieFeatures(
+                    toTermIds(tokenizeGenre(movie.getGenre()), dictionary),
+                    movie.getDirector() == null ? "" : movie.getDirector().trim().toLowerCase(Locale.ROOT),
+                    movie.getYear(),
+                    toTermIds(tokenizeDescription(movie.getDescription()), dictionary),
+                    averageReviewRating(movie));
+        }
+        return features;
+    }
+
+    private double averageReviewRating(Movie movie) {
+        return reviewService.getAverageRating(movie.getId()).orElse(movie.getImdbRating());
+    }
+
+    /**
+     * Group movies into candidate buckets and record, per movie, the flattened
+     * (bucket, position-in-bucket) pairs it belongs to.
+     */
+    private static CandidateBuckets buildBuckets(MovieFeatures[] features) {
+        Map<String, List<Integer>> bucketsByKey = new HashMap<>();
+        for (int i = 0; i < features.length; i++) {
+            MovieFeatures f = features[i];
+            for (int genre : f.genres) {
+                bucketsByKey.computeIfAbsent("g:" + genre, k -> new ArrayList<>()).add(i);
+            }
+            if (!f.director.isEmpty()) {
+                bucketsByKey.computeIfAbsent("d:" + f.director, k -> new ArrayList<>()).add(i);
+            }
+            int[] signature = minHash(f);
+            for (int band = 0; band < MINHASH_BANDS; band++) {
+                int h = band;
+                for (int row = 0; row < MINHASH_ROWS; row++) {
+                    h = 31 * h + signature[band * MINHASH_ROWS + row];
+                }
+                bucketsByKey.computeIfAbsent("m:" + band + ":" + h, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<List<int[]>> memberships = new ArrayList<>(features.length);
+        for (int i = 0; i < features.length; i++) {
+            memberships.add(new ArrayList<>());
+        }
+        List<int[]> buckets = new ArrayList<>();
+        for (List<Integer> members : bucketsByKey.values()) {
+            if (members.size() < 2) {
+                continue;
+            }
+            int[] bucket = members.stream().mapToInt(Integer::intValue).toArray();
+            if (bucket.length > MAX_BUCKET_SIZE) {
+                // Sorted neighbourhood: only nearby years get compared inside huge buckets
+                bucket = IntStream.of(bucket).boxed()
+                        .sorted((a, b) -> Integer.compare(features[a].year, features[b].year))
+                        .mapToInt(Integer::intValue).toArray();
+            }
+            int bucketId = buckets.size();
+            buckets.add(bucket);
+            for (int j = 0; j < bucket.length; j++) {
+                memberships.get(bucket[j]).add(new int[] {bucketId, j});
+            }
+        }
+
+        int[][] flattened = new int[features.length][];
+        for (int i = 0; i < features.length; i++) {
+            List<int[]> pairs = memberships.get(i);
+            flattened[i] = new int[pairs.size() * 2];
+            for (int p = 0; p < pairs.size(); p++) {
+                flattened[i][p * 2] = pairs.get(p)[0];
+                flattened[i][p * 2 + 1] = pairs.get(p)[1];
+            }
+        }
+        return new CandidateBuckets(buckets.toArray(new int[0][]), flattened);
+    }
+
+    private static void computeNeighbors(int i, MovieFeatures[] features, CandidateBuckets buckets, int[] neighbors) {
+        Set<Integer> candidates = new HashSet<>();
+        int[] pairs = buckets.memberships[i];
+        for (int p = 0; p < pairs.length; p += 2) {
+            int[] bucket = buckets.buckets[pairs[p]];
+            int from = 0;
+            int to = bucket.length;
+            if (bucket.length > MAX_BUCKET_SIZE) {
+                from = Math.max(0, pairs[p + 1] - BUCKET_WINDOW);
+                to = Math.min(bucket.length, pairs[p + 1] + BUCKET_WINDOW + 1);
+            }
+            for (int j = from; j < to; j++) {
+                if (bucket[j] != i) {
+                    candidates.add(bucket[j]);
+                }
+            }
+        }
+
+        // Tiny insertion-sorted top-N; N is small so this beats a heap
+        int[] best = new int[TOP_N];
+        double[] bestScores = new double[TOP_N];
+        int size = 0;
+        for (int candidate : candidates) {
+            double score = similarity(features[i], features[candidate]);
+            if (size == TOP_N && score <= bestScores[TOP_N - 1]) {
+                continue;
+            }
+            int pos = size < TOP_N ? size++ : TOP_N - 1;
+            while (pos > 0 && (bestScores[pos - 1] < score
+                    || (bestScores[pos - 1] == score && best[pos - 1] > candidate))) {
+                best[pos] = best[pos - 1];
+                bestScores[pos] = bestScores[pos - 1];
+                pos--;
+            }
+            best[pos] = candidate;
+            bestScores[pos] = score;
+        }
+        System.arraycopy(best, 0, neighbors, i * TOP_N, size);
+    }
+
+    static double similarity(MovieFeatures a, MovieFeatures b) {
+        int sharedGenres = intersectionSize(a.genres, b.genres);
+        int unionGenres = a.genres.length + b.genres.length - sharedGenres;
+        double genre = unionGenres == 0 ? 0 : (double) sharedGenres / unionGenres;
+
+        double director = !a.director.isEmpty() && a.director.equals(b.director) ? 1 : 0;
+
+        double year = Math.exp(-Math.abs(a.year - b.year) / 10.0);
+
+        // Cosine over binary term vectors
+        double description = a.terms.length == 0 || b.terms.length == 0 ? 0
+                : intersectionSize(a.terms, b.terms) / Math.sqrt((double) a.terms.length * b.terms.length);
+
+        double reviews = 1 - Math.min(1, Math.abs(a.reviewRating - b.reviewRating) / 4.0);
+
+        return GENRE_WEIGHT * genre + DIRECTOR_WEIGHT * director + YEAR_WEIGHT * year
+                + DESCRIPTION_WEIGHT * description + REVIEW_WEIGHT * reviews;
+    }
+
+    private static int intersectionSize(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    private static int[] minHash(MovieFeatures f) {
+        int[] signature = new int[MINHASH_BANDS * MINHASH_ROWS];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int k = 0; k < signature.length; k++) {
+            int seed = 0x9E3779B9 * (k + 1);
+            for (int term : f.terms) {
+                signature[k] = Math.min(signature[k], mix(term ^ seed));
+            }
+            signature[k] = Math.min(signature[k], mix(f.director.hashCode() ^ seed));
+        }
+        return signature;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & Integer.MAX_VALUE;
+    }
+
+    private static List<String> tokenizeGenre(String genre) {
+        List<String> tokens = new ArrayList<>();
+        if (genre != null) {
+            for (String token : genre.toLowerCase(Locale.ROOT).split("[/,]")) {
+                if (!token.trim().isEmpty()) {
+                    tokens.add(token.trim());
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> tokenizeDescription(String description) {
+        List<String> tokens = new ArrayList<>();
+        if (description != null) {
+            for (String token : description.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+                if (token.length() >= 3 && !STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Map tokens to sorted, de-duplicated term ids so set overlap is a linear merge.
+     */
+    private static int[] toTermIds(List<String> tokens, Map<String, Integer> dictionary) {
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary.computeIfAbsent(tokens.get(i), t -> dictionary.size());
+        }
+        return IntStream.of(ids).sorted().distinct().toArray();
+    }
+
+    /** Per-movie features in primitive form. */
+    static final class MovieFeatures {
+        private final int[] genres;
+        private final String director;
+        private final int year;
+        private final int[] terms;
+        private final double reviewRating;
+
+        MovieFeatures(int[] genres, String director, int year, int[] terms, double reviewRating) {
+            this.genres = genres;
+            this.director = director;
+            this.year = year;
+            this.terms = terms;
+            this.reviewRating = reviewRating;
+        }
+    }
+
+    /** Candidate buckets plus each movie's (bucket, position) memberships. */
+    private static final class CandidateBuckets {
+        private final int[][] buckets;
+        private final int[][] memberships;
+
+        private CandidateBuckets(int[][] buckets, int[][] memberships) {
+            this.buckets = buckets;
+            this.memberships = memberships;
+        }
+    }
+
+    /** Immutable snapshot of the precomputed neighbour lists. */
+    private static final class SimilarityIndex {
+        private static final SimilarityIndex EMPTY =
+                new SimilarityIndex(new Movie[0], Collections.emptyMap(), new int[0]);
+
+        private final Movie[] catalog;
+        private final Map<Long, Integer> positions;
+        private final int[] neighbors;
+
+        private SimilarityIndex(Movie[] catalog, Map<Long, Integer> positions, int[] neighbors) {
+            this.catalog = catalog;
+            this.positions = positions;
+            this.neighbors = neighbors;
+        }
+    }
+}
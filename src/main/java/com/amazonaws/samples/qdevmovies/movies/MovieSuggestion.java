@@ -0,0 +1,41 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A single type-ahead suggestion returned by the suggest endpoint.
+ * Either a movie title (with its ID) or a director (captain) name.
+ */
+public class MovieSuggestion {
+
+    public enum Type {
+        MOVIE,
+        DIRECTOR
+    }
+
+    private final String text;
+    private final Type type;
+    private final Long movieId;
+    private final double imdbRating;
+
+    public MovieSuggestion(String text, Type type, Long movieId, double imdbRating) {
+        this.text = text;
+        this.type = type;
+        this.movieId = movieId;
+        this.imdbRating = imdbRating;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public Long getMovieId() {
+        return this.movieId;
+    }
+
+    public double getImdbRating() {
+        return this.imdbRating;
+    }
+}
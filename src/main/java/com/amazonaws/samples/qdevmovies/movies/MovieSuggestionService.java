@@ -0,0 +1,106 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ahoy! Type-ahead suggestions for the treasure hunt form.
+ * Movie titles and directors are indexed into a {@link MovieSuggestionTrie}
+ * so each keystroke is answered without scanning the catalog. The trie is
+ * rebuilt whenever a catalog change is applied.
+ */
+@Service
+public class MovieSuggestionService {
+    private static final Logger logger = LogManager.getLogger(MovieSuggestionService.class);
+
+    static final int MAX_SUGGESTIONS = 10;
+    static final int DEFAULT_SUGGESTIONS = 5;
+
+    private final MovieService movieService;
+    private volatile MovieSuggestionTrie trie;
+    private volatile String fingerprint;
+
+    @Autowired
+    public MovieSuggestionService(MovieService movieService) {
+        this.movieService = movieService;
+        rebuild();
+    }
+
+    /**
+     * Re-index the current catalog and swap the new trie in.
+     */
+    private synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<MovieSuggestion> suggestions = collectSuggestions(movieService.getAllMovies());
+        MovieSuggestionTrie rebuilt = MovieSuggestionTrie.build(suggestions, MAX_SUGGESTIONS);
+        this.trie = rebuilt;
+        this.fingerprint = fingerprint(suggestions);
+        logger.info("Suggestion trie charted with {} entries in {} ms",
+                   rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isMoviesChanged()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Suggest movie titles and directors starting with (or containing a word starting with) the prefix.
+     *
+     * @param prefix Text typed so far
+     * @param limit Maximum number of suggestions, capped at {@value #MAX_SUGGESTIONS}
+     * @return Suggestions ranked by IMDb rating
+     */
+    public List<MovieSuggestion> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * Identifies the indexed content; changes whenever a rebuild changes what can be suggested.
+     * It depends only on the catalog, so replicas holding the same catalog agree on it.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    private static String fingerprint(List<MovieSuggestion> suggestions) {
+        // 64-bit FNV-1a over every field that can appear in a response
+        long hash = 0xcbf29ce484222325L;
+        for (MovieSuggestion suggestion : suggestions) {
+            String entry = suggestion.getText() + '\u0000' + suggestion.getType() + '\u0000'
+                    + suggestion.getMovieId() + '\u0000' + suggestion.getImdbRating() + '\u0000';
+            for (int i = 0; i < entry.length(); i++) {
+                hash = (hash ^ entry.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return Long.toHexString(hash);
+    }
+
+    /**
+     * One entry per movie title, plus one per distinct director ranked by their best-rated movie.
+     */
+    private static List<MovieSuggestion> collectSuggestions(List<Movie> movies) {
+        List<MovieSuggestion> suggestions = new ArrayList<>(movies.size());
+        Map<String, Double> directorRatings = new LinkedHashMap<>();
+        for (Movie movie : movies) {
+            suggestions.add(new MovieSuggestion(movie.getMovieName(), MovieSuggestion.Type.MOVIE,
+                    movie.getId(), movie.getImdbRating()));
+            directorRatings.merge(movie.getDirector(), movie.getImdbRating(), Math::max);
+        }
+        for (Map.Entry<String, Double> director : directorRatings.entrySet()) {
+            suggestions.add(new MovieSuggestion(director.getKey(), MovieSuggestion.Type.DIRECTOR,
+                    null, director.getValue()));
+        }
+        return suggestions;
+    }
+}
@@ -0,0 +1,193 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie over normalized suggestion texts.
+ * Every node carries its precomputed top-K completions, so a lookup is a walk
+ * down the prefix followed by a copy of at most K entries - no subtree traversal
+ * happens at query time.
+ *
+ * Each text is indexed under its full normalized form and under every word
+ * boundary, so "esc" finds "The Prison Escape" as well as titles starting with it.
+ */
+public class MovieSuggestionTrie {
+
+    private static final int[] NO_ENTRIES = new int[0];
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    /** Ranking used for top-K: highest rated first, then alphabetical. */
+    static final Comparator<MovieSuggestion> RANKING = Comparator
+            .comparingDouble(MovieSuggestion::getImdbRating).reversed()
+            .thenComparing(MovieSuggestion::getText, String.CASE_INSENSITIVE_ORDER);
+
+    private final MovieSuggestion[] entries;
+    private final Node root;
+    private final int maxResults;
+
+    private MovieSuggestionTrie(MovieSuggestion[] entries, Node root, int maxResults) {
+        this.entries = entries;
+        this.root = root;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Build a trie that can answer up to {@code maxResults} completions per prefix.
+     */
+    public static MovieSuggestionTrie build(List<MovieSuggestion> suggestions, int maxResults) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("maxResults must be positive");
+        }
+        // Sort once so an entry's index is its rank; top-K merging is then plain int ordering
+        MovieSuggestion[] entries = suggestions.toArray(new MovieSuggestion[0]);
+        Arrays.sort(entries, RANKING);
+
+        BuildNode buildRoot = new BuildNode();
+        for (int i = 0; i < entries.length; i++) {
+            String key = normalize(entries[i].getText());
+            if (key.isEmpty()) {
+                continue;
+            }
+            insert(buildRoot, key, i);
+            for (int pos = key.indexOf(' '); pos >= 0; pos = key.indexOf(' ', pos + 1)) {
+                insert(buildRoot, key.substring(pos + 1), i);
+            }
+        }
+        return new MovieSuggestionTrie(entries, freeze(buildRoot, maxResults), maxResults);
+    }
+
+    /**
+     * Return up to {@code limit} ranked completions for the given prefix.
+     */
+    public List<MovieSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        int count = Math.min(limit, node.top.length);
+        List<MovieSuggestion> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(entries[node.top[i]]);
+        }
+        return results;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Lower-case, strip accents and punctuation, and collapse whitespace so that
+     * "Space Wars: The Beginning" and "space wars the beg" share a prefix.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void insert(BuildNode root, String key, int entry) {
+        BuildNode node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new BuildNode());
+        }
+        node.terminals.add(entry);
+    }
+
+    private static Node freeze(BuildNode node, int k) {
+        char[] chars = node.children.isEmpty() ? NO_CHARS : new char[node.children.size()];
+        Node[] children = node.children.isEmpty() ? NO_NODES : new Node[node.children.size()];
+        int[] candidates = new int[node.terminals.size() + node.children.size() * k];
+        int n = 0;
+        for (Integer terminal : node.terminals) {
+            candidates[n++] = terminal;
+        }
+        int c = 0;
+        for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+            chars[c] = child.getKey();
+            children[c] = freeze(child.getValue(), k);
+            for (int entry : children[c].top) {
+                candidates[n++] = entry;
+            }
+            c++;
+        }
+        return new Node(chars, children, topK(candidates, n, k));
+    }
+
+    private static int[] topK(int[] candidates, int length, int k) {
+        if (length == 0) {
+            return NO_ENTRIES;
+        }
+        Arrays.sort(candidates, 0, length);
+        int[] top = new int[Math.min(length, k)];
+        int n = 0;
+        for (int i = 0; i < length && n < top.length; i++) {
+            if (n == 0 || top[n - 1] != candidates[i]) {
+                top[n++] = candidates[i];
+            }
+        }
+        return n == top.length ? top : Arrays.copyOf(top, n);
+    }
+
+    /** Mutable node used only while building. */
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private final List<Integer> terminals = new ArrayList<>(1);
+    }
+
+    /** Frozen node: sorted edge labels, child pointers and ranked completions. */
+    private static final class Node {
+        private final char[] chars;
+        private final Node[] children;
+        private final int[] top;
+
+        private Node(char[] chars, Node[] children, int[] top) {
+            this.chars = chars;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char c) {
+            int idx = Arrays.binarySearch(chars, c);
+            return idx >= 0 ? children[idx] : null;
+        }
+    }
+}
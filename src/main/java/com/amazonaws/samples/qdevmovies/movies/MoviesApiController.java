@@ -0,0 +1,108 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON endpoints used by the treasure hunt page for interactive features. When the catalog is
+ * sharded these only see this instance's shard; {@link ClusterController} covers the whole catalog.
+ */
+@RestController
+@RequestMapping("/api/movies")
+public class MoviesApiController {
+    private static final Logger logger = LogManager.getLogger(MoviesApiController.class);
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieSuggestionService movieSuggestionService;
+
+    /**
+     * Type-ahead suggestions for movie titles and directors. Caches must revalidate: the ETag
+     * follows the suggestion index, so a changed catalog is seen at once and an unchanged one
+     * is answered with 304 Not Modified.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<MovieSuggestion>> suggest(
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        int maxResults = limit == null ? MovieSuggestionService.DEFAULT_SUGGESTIONS
+                : Math.max(1, Math.min(limit, MovieSuggestionService.MAX_SUGGESTIONS));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(movieSuggestionService.getFingerprint())
+                .body(movieSuggestionService.suggest(prefix, maxResults));
+    }
+
+    /**
+     * Multi-criteria search. All parameters are optional; text parameters are case-insensitive
+     * partial matches and range bounds are inclusive.
+     */
+    @GetMapping("/search")
+    public List<Movie> search(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration) {
+        return movieService.searchMovieTreasures(toCriteria(name, id, genre, director, minYear, maxYear,
+                minRating, maxRating, minDuration, maxDuration));
+    }
+
+    /**
+     * Show the query plan the search endpoint would use for these parameters, without running it.
+     */
+    @GetMapping("/search/explain")
+    public Map<String, Object> explainSearch(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration) {
+        return movieService.explainSearch(toCriteria(name, id, genre, director, minYear, maxYear,
+                minRating, maxRating, minDuration, maxDuration));
+    }
+
+    static MovieSearchCriteria toCriteria(String name, Long id, String genre, String director,
+                                          Integer minYear, Integer maxYear,
+                                          Double minRating, Double maxRating,
+                                          Integer minDuration, Integer maxDuration) {
+        if (id != null && id <= 0) {
+            throw new InvalidSearchParametersException("Arrr! That treasure map ID be invalid, matey! Please provide a valid ID greater than 0.");
+        }
+        return new MovieSearchCriteria(name, id, genre, director, minYear, maxYear,
+                minRating, maxRating, minDuration, maxDuration);
+    }
+
+    @ExceptionHandler(InvalidSearchParametersException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleInvalidSearch(InvalidSearchParametersException e) {
+        logger.warn("Invalid search parameters provided: {}", e.getMessage());
+        return Collections.singletonMap("message", e.getMessage());
+    }
+}
@@ -15,6 +15,8 @@ import java.util.Optional;
 @Controller
 public class MoviesController {
     private static final Logger logger = LogManager.getLogger(MoviesController.class);
+    private static final int SIMILAR_MOVIES_LIMIT = 4;
+    private static final int REVIEWS_PER_PAGE = 10;
 
     @Autowired
     private MovieService movieService;
@@ -22,6 +24,9 @@ public class MoviesController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private MovieSimilarityService movieSimilarityService;
+
     @GetMapping("/movies")
     public String getMovies(org.springframework.ui.Model model) {
         logger.info("Fetching movies");
@@ -102,7 +107,10 @@ public class MoviesController {
     }
 
     @GetMapping("/movies/{id}/details")
-    public String getMovieDetails(@PathVariable("id") Long movieId, org.springframework.ui.Model model) {
+    public String getMovieDetails(@PathVariable("id") Long movieId,
+                                  @RequestParam(value = "reviewSort", required = false) String reviewSort,
+                                  @RequestParam(value = "reviewPage", required = false) Integer reviewPage,
+                                  org.springframework.ui.Model model) {
         logger.info("Fetching details for movie ID: {}", movieId);
         
         Optional<Movie> movieOpt = movieService.getMovieById(movieId);
@@ -116,7 +124,10 @@ public class MoviesController {
         Movie movie = movieOpt.get();
         model.addAttribute("movie", movie);
         model.addAttribute("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
-        model.addAttribute("allReviews", reviewService.getReviewsForMovie(movie.getId()));
+        model.addAttribute("reviewPage", reviewService.getReviewPage(movie.getId(),
+                ReviewSort.fromParameter(reviewSort), reviewPage == null ? 1 : reviewPage, REVIEWS_PER_PAGE));
+        model.addAttribute("reviewSorts", ReviewSort.values());
+        model.addAttribute("similarMovies", movieSimilarityService.getSimilarMovies(movie.getId(), SIMILAR_MOVIES_LIMIT));
         
         return "movie-details";
     }
@@ -0,0 +1,31 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a server-rendered page. The event spans the whole request; the
+ * render duration is the part spent in the template after the controller returned.
+ */
+@Name("com.amazonaws.samples.qdevmovies.PageRender")
+@Label("Page Render")
+@Category("Movies")
+@Description("Request answered with a Thymeleaf view")
+class PageRenderEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("View")
+    String view;
+
+    @Label("Status")
+    int status;
+
+    @Label("Render Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long renderDuration;
+}
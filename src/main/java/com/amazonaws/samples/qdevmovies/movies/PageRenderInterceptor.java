@@ -0,0 +1,48 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Emits a {@link PageRenderEvent} for requests answered with a view. REST responses carry no
+ * view and are skipped; their searches and review loads have events of their own.
+ */
+public class PageRenderInterceptor implements HandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = PageRenderInterceptor.class.getName() + ".event";
+    private static final String RENDER_START_ATTRIBUTE = PageRenderInterceptor.class.getName() + ".renderStart";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object event = FlightEvents.beginPageRender();
+        if (event != null) {
+            request.setAttribute(EVENT_ATTRIBUTE, event);
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        Object event = request.getAttribute(EVENT_ATTRIBUTE);
+        if (event != null && modelAndView != null && modelAndView.getViewName() != null) {
+            FlightEvents.setPageView(event, modelAndView.getViewName());
+            request.setAttribute(RENDER_START_ATTRIBUTE, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object event = request.getAttribute(EVENT_ATTRIBUTE);
+        Long renderStart = (Long) request.getAttribute(RENDER_START_ATTRIBUTE);
+        if (event == null || renderStart == null) {
+            return;
+        }
+        FlightEvents.commitPageRender(event, request.getRequestURI(), response.getStatus(),
+                System.nanoTime() - renderStart);
+    }
+}
@@ -0,0 +1,79 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Not yet, matey! Turns traffic away with a 503 until the application reports ready.
+ *
+ * Tomcat accepts connections as soon as it starts, while {@link StartupWarmup} is still
+ * running, and there is no actuator readiness probe for a load balancer to watch. This gate
+ * follows Spring Boot's {@link ReadinessState} instead, which only turns to ACCEPTING_TRAFFIC
+ * after every runner has returned, so early visitors are told to retry rather than served
+ * cold pages or left to slow the warm-up down.
+ *
+ * The warm-up's own requests carry a token only this process knows and pass. So do the admin,
+ * catalog replication and shard endpoints, which operators and the other nodes need meanwhile.
+ */
+public class ReadinessGateFilter extends OncePerRequestFilter {
+    static final String WARMUP_HEADER = "X-Movies-Warmup";
+    static final String[] OPEN_PATHS = {"/api/admin/", "/api/catalog/", "/api/cluster/shard"};
+    static final long RETRY_AFTER_SECONDS = 5;
+
+    private final ApplicationAvailability availability;
+    private final String warmupToken = UUID.randomUUID().toString();
+    private final LongAdder refused = new LongAdder();
+
+    public ReadinessGateFilter(ApplicationAvailability availability) {
+        this.availability = availability;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (availability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC
+                || warmupToken.equals(request.getHeader(WARMUP_HEADER)) || isOpenPath(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        refused.increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Avast! The ship be still warmin' up. Please come aboard again shortly.");
+    }
+
+    private static boolean isOpenPath(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String open : OPEN_PATHS) {
+            if (path.startsWith(open)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Value of {@link #WARMUP_HEADER} that lets a request through before the app is ready.
+     */
+    String getWarmupToken() {
+        return warmupToken;
+    }
+
+    /**
+     * Requests turned away so far.
+     */
+    public long getRefused() {
+        return refused.sum();
+    }
+}
@@ -1,20 +1,26 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import java.nio.charset.StandardCharsets;
+
 public class Review {
     private String userName;
     private String avatarEmoji;
     private double rating;
-    private String comment;
+    /** UTF-8, decoded on access. */
+    private byte[] comment;
 
     public Review(String userName, String avatarEmoji, double rating, String comment) {
         this.userName = userName;
         this.avatarEmoji = avatarEmoji;
         this.rating = rating;
-        this.comment = comment;
+        this.comment = comment == null ? null : comment.getBytes(StandardCharsets.UTF_8);
     }
 
     public String getUserName() { return userName; }
     public String getAvatarEmoji() { return avatarEmoji; }
     public double getRating() { return rating; }
-    public String getComment() { return comment; }
+    public String getComment() { return comment == null ? null : new String(comment, StandardCharsets.UTF_8); }
+
+    /** The stored UTF-8 form, without decoding; not to be modified. */
+    byte[] getCommentUtf8() { return comment; }
 }
@@ -0,0 +1,136 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, pre-sorted reviews for one movie.
+ *
+ * Reviews are kept in arrival order, which doubles as the recency order, next to a permutation
+ * sorted by rating (highest first, newer first among equal ratings). The rating histogram and
+ * sum are maintained alongside, so a page of reviews in any order plus the aggregates cost
+ * O(page size) no matter how many reviews the movie has. Appends return a new index with the
+ * new review inserted into the rating order in O(n) array copies, no re-sort.
+ */
+final class ReviewIndex {
+
+    /** Half-star buckets from 1.0 to 5.0 stars. */
+    static final int HISTOGRAM_BUCKETS = 9;
+
+    static final ReviewIndex EMPTY = new ReviewIndex(new Review[0], new int[0], new int[HISTOGRAM_BUCKETS], 0);
+
+    private final Review[] reviews;
+    private final int[] byRating;
+    private final int[] histogram;
+    private final double ratingSum;
+
+    private ReviewIndex(Review[] reviews, int[] byRating, int[] histogram, double ratingSum) {
+        this.reviews = reviews;
+        this.byRating = byRating;
+        this.histogram = histogram;
+        this.ratingSum = ratingSum;
+    }
+
+    static ReviewIndex of(List<Review> reviewList) {
+        Review[] reviews = reviewList.toArray(new Review[0]);
+        Integer[] order = new Integer[reviews.length];
+        int[] histogram = new int[HISTOGRAM_BUCKETS];
+        double ratingSum = 0;
+        for (int i = 0; i < reviews.length; i++) {
+            order[i] = i;
+            histogram[bucketOf(reviews[i].getRating())]++;
+            ratingSum += reviews[i].getRating();
+        }
+        Arrays.sort(order, (a, b) -> compareByRating(reviews, a, b));
+        int[] byRating = new int[reviews.length];
+        for (int i = 0; i < order.length; i++) {
+            byRating[i] = order[i];
+        }
+        return new ReviewIndex(reviews, byRating, histogram, ratingSum);
+    }
+
+    /** Highest rating first; newer (later) reviews first among equal ratings. */
+    private static int compareByRating(Review[] reviews, int a, int b) {
+        int byRating = Double.compare(reviews[b].getRating(), reviews[a].getRating());
+        return byRating != 0 ? byRating : Integer.compare(b, a);
+    }
+
+    ReviewIndex withReview(Review review) {
+        int position = reviews.length;
+        Review[] grown = Arrays.copyOf(reviews, position + 1);
+        grown[position] = review;
+
+        // The new review is the newest, so it goes before every review with the same rating
+        int low = 0;
+        int high = byRating.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (reviews[byRating[mid]].getRating() > review.getRating()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int[] order = new int[byRating.length + 1];
+        System.arraycopy(byRating, 0, order, 0, low);
+        order[low] = position;
+        System.arraycopy(byRating, low, order, low + 1, byRating.length - low);
+
+        int[] counts = histogram.clone();
+        counts[bucketOf(review.getRating())]++;
+        return new ReviewIndex(grown, order, counts, ratingSum + review.getRating());
+    }
+
+    /**
+     * Ratings are rounded to the nearest half star and clamped to 1-5 stars.
+     */
+    static int bucketOf(double rating) {
+        int halfStars = (int) Math.round(rating * 2);
+        return Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, halfStars - 2));
+    }
+
+    int size() {
+        return reviews.length;
+    }
+
+    /** Mean rating from the running sum, or NaN without reviews. */
+    double averageRating() {
+        return reviews.length == 0 ? Double.NaN : ratingSum / reviews.length;
+    }
+
+    /** All reviews in arrival order. */
+    List<Review> all() {
+        return Collections.unmodifiableList(Arrays.asList(reviews));
+    }
+
+    /**
+     * @param page 1-based page number, clamped to the available pages
+     */
+    ReviewPage page(ReviewSort sort, int page, int pageSize) {
+        int totalPages = Math.max(1, (reviews.length + pageSize - 1) / pageSize);
+        int current = Math.max(1, Math.min(page, totalPages));
+        int from = (current - 1) * pageSize;
+        int to = Math.min(reviews.length, from + pageSize);
+        List<Review> pageReviews = new ArrayList<>(Math.max(0, to - from));
+        for (int rank = from; rank < to; rank++) {
+            pageReviews.add(reviews[positionAt(sort, rank)]);
+        }
+        return new ReviewPage(pageReviews, sort, current, pageSize, reviews.length,
+                reviews.length == 0 ? 0 : ratingSum / reviews.length, histogram);
+    }
+
+    private int positionAt(ReviewSort sort, int rank) {
+        switch (sort) {
+            case OLDEST:
+                return rank;
+            case HIGHEST:
+                return byRating[rank];
+            case LOWEST:
+                return byRating[byRating.length - 1 - rank];
+            default:
+                return reviews.length - 1 - rank;
+        }
+    }
+}
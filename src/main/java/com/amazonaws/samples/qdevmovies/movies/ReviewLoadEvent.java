@@ -0,0 +1,37 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for loading reviews: the whole review file at startup, or one page of
+ * a movie's reviews.
+ */
+@Name("com.amazonaws.samples.qdevmovies.ReviewLoad")
+@Label("Review Load")
+@Category("Movies")
+@Description("Reviews loaded from their source or read for a movie")
+class ReviewLoadEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Movie ID")
+    @Description("Movie whose reviews were read, or 0 for a bulk load")
+    long movieId;
+
+    @Label("Sort")
+    String sort;
+
+    @Label("Page")
+    int page;
+
+    @Label("Reviews")
+    @Description("Reviews loaded, or returned on the page")
+    int reviewCount;
+
+    @Label("Total Reviews")
+    int totalReviews;
+}
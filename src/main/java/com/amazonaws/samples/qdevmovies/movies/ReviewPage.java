@@ -0,0 +1,104 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a movie's reviews together with aggregates over all of its reviews.
+ */
+public class ReviewPage {
+
+    private final List<Review> reviews;
+    private final ReviewSort sort;
+    private final int page;
+    private final int pageSize;
+    private final int totalReviews;
+    private final double averageRating;
+    private final List<RatingBucket> histogram;
+
+    public ReviewPage(List<Review> reviews, ReviewSort sort, int page, int pageSize,
+                      int totalReviews, double averageRating, int[] histogramCounts) {
+        this.reviews = Collections.unmodifiableList(reviews);
+        this.sort = sort;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalReviews = totalReviews;
+        this.averageRating = averageRating;
+        List<RatingBucket> buckets = new ArrayList<>(histogramCounts.length);
+        // Highest rating first, as rating breakdowns are usually shown
+        for (int bucket = histogramCounts.length - 1; bucket >= 0; bucket--) {
+            buckets.add(new RatingBucket(1.0 + bucket * 0.5, histogramCounts[bucket], totalReviews));
+        }
+        this.histogram = Collections.unmodifiableList(buckets);
+    }
+
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    public ReviewSort getSort() {
+        return sort;
+    }
+
+    /** 1-based page number. */
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getTotalReviews() {
+        return totalReviews;
+    }
+
+    public int getTotalPages() {
+        return Math.max(1, (totalReviews + pageSize - 1) / pageSize);
+    }
+
+    public boolean isHasPrevious() {
+        return page > 1;
+    }
+
+    public boolean isHasNext() {
+        return page < getTotalPages();
+    }
+
+    public double getAverageRating() {
+        return averageRating;
+    }
+
+    /** Half-star buckets from 5.0 down to 1.0 stars. */
+    public List<RatingBucket> getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Number of reviews whose rating rounds to {@code stars}.
+     */
+    public static class RatingBucket {
+        private final double stars;
+        private final int count;
+        private final int percent;
+
+        RatingBucket(double stars, int count, int totalReviews) {
+            this.stars = stars;
+            this.count = count;
+            this.percent = totalReviews == 0 ? 0 : (int) Math.round(100.0 * count / totalReviews);
+        }
+
+        public double getStars() {
+            return stars;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getPercent() {
+            return percent;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.amazonaws.samples.qdevmovies.utils.StringInterner;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,38 +12,136 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
+@DependsOn("flightRecorderService") // a continuous recording should include the startup load
 public class ReviewService {
     private static final Logger logger = LogManager.getLogger(ReviewService.class);
 
-    public List<Review> getReviewsForMovie(long movieId) {
-        List<Review> reviews = new ArrayList<>();
+    /** Pre-sorted reviews per movie. Indexes are immutable; appends swap in a new one. */
+    private final Map<Long, ReviewIndex> reviewsByMovie = new ConcurrentHashMap<>();
+
+    public ReviewService() {
+        loadReviewsFromJson();
+    }
+
+    private void loadReviewsFromJson() {
+        Object event = FlightEvents.beginReviewLoad();
+        int loaded = 0;
         try {
             InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json");
             if (inputStream != null) {
                 Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
                 String jsonContent = scanner.useDelimiter("\\A").next();
                 scanner.close();
-                
+
+                // Reviewers and their avatars repeat across reviews; the pool lives only for this load
+                StringInterner strings = new StringInterner();
                 JSONObject reviewsData = new JSONObject(jsonContent);
-                if (reviewsData.has(String.valueOf(movieId))) {
-                    JSONArray movieReviews = reviewsData.getJSONArray(String.valueOf(movieId));
+                for (String movieId : reviewsData.keySet()) {
+                    JSONArray movieReviews = reviewsData.getJSONArray(movieId);
+                    List<Review> reviews = new ArrayList<>(movieReviews.length());
                     for (int i = 0; i < movieReviews.length(); i++) {
-                        JSONObject reviewObj = movieReviews.getJSONObject(i);
-                        reviews.add(new Review(
-                            reviewObj.getString("userName"),
-                            reviewObj.getString("avatarEmoji"),
-                            reviewObj.getDouble("rating"),
-                            reviewObj.getString("comment")
-                        ));
+                        reviews.add(parseReview(movieReviews.getJSONObject(i), strings));
                     }
+                    reviewsByMovie.put(Long.parseLong(movieId), ReviewIndex.of(reviews));
+                    loaded += reviews.size();
                 }
             }
         } catch (Exception e) {
-            logger.error("Failed to load reviews for movie {}: {}", movieId, e.getMessage());
+            logger.error("Failed to load reviews: {}", e.getMessage());
+        }
+        FlightEvents.commitReviewLoad(event, "mock-reviews.json", loaded);
+    }
+
+    static Review parseReview(JSONObject reviewObj) {
+        return parseReview(reviewObj, null);
+    }
+
+    /**
+     * @param strings Pool to share repeated reviewers and avatars through, or null to keep them as parsed
+     */
+    static Review parseReview(JSONObject reviewObj, StringInterner strings) {
+        String userName = reviewObj.getString("userName");
+        String avatarEmoji = reviewObj.getString("avatarEmoji");
+        return new Review(
+            strings != null ? strings.intern(userName) : userName,
+            strings != null ? strings.intern(avatarEmoji) : avatarEmoji,
+            reviewObj.getDouble("rating"),
+            reviewObj.getString("comment")
+        );
+    }
+
+    public List<Review> getReviewsForMovie(long movieId) {
+        return new ArrayList<>(reviewsByMovie.getOrDefault(movieId, ReviewIndex.EMPTY).all());
+    }
+
+    /**
+     * Average rating of a movie's reviews, without copying them.
+     *
+     * @return The average, or empty if the movie has no reviews
+     */
+    public OptionalDouble getAverageRating(long movieId) {
+        ReviewIndex index = reviewsByMovie.get(movieId);
+        return index == null || index.size() == 0 ? OptionalDouble.empty() : OptionalDouble.of(index.averageRating());
+    }
+
+    /**
+     * One page of a movie's reviews with its rating histogram and average. Only the requested
+     * page is materialized, however many reviews the movie has.
+     *
+     * @param page 1-based page number; out-of-range pages are clamped
+     */
+    public ReviewPage getReviewPage(long movieId, ReviewSort sort, int page, int pageSize) {
+        Object event = FlightEvents.beginReviewLoad();
+        ReviewPage reviewPage = reviewsByMovie.getOrDefault(movieId, ReviewIndex.EMPTY)
+                .page(sort, page, Math.max(1, pageSize));
+        FlightEvents.commitReviewPage(event, movieId, sort, reviewPage);
+        return reviewPage;
+    }
+
+    /**
+     * Every movie's reviews in arrival order, for catalog snapshots.
+     */
+    public Map<Long, List<Review>> getReviewsByMovie() {
+        Map<Long, List<Review>> reviews = new TreeMap<>();
+        for (Map.Entry<Long, ReviewIndex> entry : reviewsByMovie.entrySet()) {
+            reviews.put(entry.getKey(), new ArrayList<>(entry.getValue().all()));
         }
         return reviews;
     }
+
+    /**
+     * Replace every movie's reviews. Each movie switches from its old reviews to its new ones
+     * in a single step.
+     */
+    public void replaceReviews(Map<Long, List<Review>> reviews) {
+        for (Map.Entry<Long, List<Review>> entry : reviews.entrySet()) {
+            reviewsByMovie.put(entry.getKey(), ReviewIndex.of(entry.getValue()));
+        }
+        reviewsByMovie.keySet().retainAll(reviews.keySet());
+    }
+
+    /**
+     * Every review of every movie, for footprint reports.
+     */
+    List<Review> getAllReviews() {
+        List<Review> all = new ArrayList<>();
+        for (ReviewIndex index : reviewsByMovie.values()) {
+            all.addAll(index.all());
+        }
+        return all;
+    }
+
+    /**
+     * Add a review after the existing reviews for the movie.
+     */
+    public void appendReview(long movieId, Review review) {
+        reviewsByMovie.compute(movieId, (id, index) -> (index == null ? ReviewIndex.EMPTY : index).withReview(review));
+    }
 }
@@ -0,0 +1,32 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Locale;
+
+/**
+ * Orders for paging through a movie's reviews. Reviews carry no timestamp, so recency is the
+ * order in which they were loaded or appended.
+ */
+public enum ReviewSort {
+    NEWEST,
+    OLDEST,
+    HIGHEST,
+    LOWEST;
+
+    /**
+     * Parse a request parameter, falling back to {@link #NEWEST} for missing or unknown values.
+     */
+    public static ReviewSort fromParameter(String value) {
+        if (value != null) {
+            for (ReviewSort sort : values()) {
+                if (sort.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                    return sort;
+                }
+            }
+        }
+        return NEWEST;
+    }
+
+    public String getParameter() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,124 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batten down the hatches! Admission control in front of the expensive search endpoints.
+ *
+ * A request must first get a token from its client's bucket, then a slot from the adaptive
+ * concurrency limiter. Anything that fails either check gets an immediate 429 instead of
+ * waiting for a Tomcat worker, so one scraper cannot starve everyone else.
+ *
+ * Shard searches from other cluster nodes skip the per-client bucket, because the
+ * coordinating node already charged the client for them. They still take a concurrency slot.
+ * Shard searches from anyone else pay for both.
+ */
+public class SearchAdmissionFilter extends OncePerRequestFilter {
+    private static final Logger logger = LogManager.getLogger(SearchAdmissionFilter.class);
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Set<String> peerAddresses;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder peerSearches = new LongAdder();
+
+    public SearchAdmissionFilter(TokenBucketRateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this(rateLimiter, concurrencyLimiter, Collections.emptySet());
+    }
+
+    /**
+     * @param peerAddresses IP addresses of the other cluster nodes
+     */
+    public SearchAdmissionFilter(TokenBucketRateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 Set<String> peerAddresses) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.peerAddresses = peerAddresses;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean peerSearch = isPeerShardSearch(request);
+        long waitNanos = peerSearch ? 0 : rateLimiter.tryAcquire(clientKey(request));
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            reject(response, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1),
+                    "Arrr! Ye be searchin' too fast, matey. Slow yer oars and try again shortly.");
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            overloaded.increment();
+            reject(response, 1,
+                    "Shiver me timbers! The treasure hunters be overloaded. Please try again in a moment.");
+            return;
+        }
+
+        accepted.increment();
+        if (peerSearch) {
+            peerSearches.increment();
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isPeerShardSearch(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return AdmissionControlConfig.SHARD_SEARCH_PATH.equals(path) && peerAddresses.contains(request.getRemoteAddr());
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds, String message) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Shedding search request: {} (limit {}, in flight {})",
+                        message, concurrencyLimiter.getLimit(), concurrencyLimiter.getInFlight());
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+
+    /**
+     * Current admission counters and limiter state, for the admin endpoint.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("accepted", accepted.sum());
+        metrics.put("rejectedRateLimited", rateLimited.sum());
+        metrics.put("peerShardSearches", peerSearches.sum());
+        metrics.put("rejectedOverloaded", overloaded.sum());
+        metrics.put("concurrencyLimit", concurrencyLimiter.getLimit());
+        metrics.put("inFlight", concurrencyLimiter.getInFlight());
+        metrics.put("baselineLatencyMillis", concurrencyLimiter.getBaselineLatencyMillis());
+        metrics.put("lastLatencyMillis", concurrencyLimiter.getLastLatencyMillis());
+        metrics.put("trackedClients", rateLimiter.getTrackedClients());
+        metrics.put("overflowClientRequests", rateLimiter.getOverflowRequests());
+        return metrics;
+    }
+}
@@ -0,0 +1,23 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Talks to the shard-local endpoints of another instance.
+ */
+public interface ShardClient {
+
+    /**
+     * Run a search against the movies owned by the shard at {@code nodeUrl}.
+     *
+     * @return Matching movies in catalog order
+     */
+    List<Movie> search(String nodeUrl, MovieSearchCriteria criteria, int timeoutMillis) throws IOException;
+
+    /**
+     * Look up a movie on the shard at {@code nodeUrl}.
+     */
+    Optional<Movie> getMovie(String nodeUrl, long id, int timeoutMillis) throws IOException;
+}
@@ -0,0 +1,194 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers queries over the whole sharded catalog.
+ *
+ * Searches are scattered to every shard in parallel and share one deadline; shards that
+ * miss it or fail are reported instead of failing the whole search. Each shard returns its
+ * matches in ID order, so the gather step is a k-way merge. ID lookups and searches pinned
+ * to one ID go straight to the owning shard. This instance's own shard is queried in-process,
+ * but through the same pool and deadline as the others, so a local failure is reported the
+ * same way. The pool is bounded: calls beyond its threads and queue fail fast as failed shards.
+ */
+@Service
+public class ShardedSearchCoordinator {
+    private static final Logger logger = LogManager.getLogger(ShardedSearchCoordinator.class);
+
+    private final CatalogShard shard;
+    private final MovieService movieService;
+    private final ShardClient shardClient;
+    private final int timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    ShardedSearchCoordinator(CatalogShard shard, MovieService movieService, ShardClient shardClient,
+                             int timeoutMillis) {
+        this(shard, movieService, shardClient, timeoutMillis, 64);
+    }
+
+    /**
+     * @param maxConcurrentCalls Threads for shard calls; as many more calls may wait in the queue
+     */
+    @Autowired
+    public ShardedSearchCoordinator(CatalogShard shard, MovieService movieService, ShardClient shardClient,
+                                    @Value("${movies.sharding.timeout-millis:500}") int timeoutMillis,
+                                    @Value("${movies.sharding.max-concurrent-calls:64}") int maxConcurrentCalls) {
+        this.shard = shard;
+        this.movieService = movieService;
+        this.shardClient = shardClient;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentCalls), daemonThreads(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ShardedSearchResult search(MovieSearchCriteria criteria) {
+        List<Integer> targets = new ArrayList<>();
+        if (criteria.getId() != null) {
+            targets.add(shard.shardFor(criteria.getId()));
+        } else {
+            for (int i = 0; i < shard.getShardCount(); i++) {
+                targets.add(i);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<CompletableFuture<List<Movie>>> pending = new ArrayList<>(targets.size());
+        for (int target : targets) {
+            pending.add(submit(target, criteria));
+        }
+
+        List<List<Movie>> answers = new ArrayList<>(targets.size());
+        Map<Integer, String> failedShards = new TreeMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            CompletableFuture<List<Movie>> future = pending.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                answers.add(future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failedShards.put(targets.get(i), "timed out after " + timeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failedShards.put(targets.get(i), cause.getMessage() != null ? cause.getMessage()
+                        : cause.getClass().getSimpleName());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedShards.put(targets.get(i), "interrupted");
+            }
+        }
+        if (!failedShards.isEmpty()) {
+            logger.warn("Partial treasure hunt {}, failed shards: {}", criteria, failedShards);
+        }
+        return new ShardedSearchResult(merge(answers), targets.size(), failedShards);
+    }
+
+    private CompletableFuture<List<Movie>> submit(int target, MovieSearchCriteria criteria) {
+        try {
+            if (target == shard.getShardIndex()) {
+                return CompletableFuture.supplyAsync(() -> movieService.searchMovieTreasures(criteria), executor);
+            }
+            return CompletableFuture.supplyAsync(() -> remoteSearch(target, criteria), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<List<Movie>> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("too many shard calls in flight"));
+            return rejected;
+        }
+    }
+
+    private List<Movie> remoteSearch(int target, MovieSearchCriteria criteria) {
+        try {
+            return shardClient.search(shard.nodeFor(target), criteria, timeoutMillis);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Look up a movie on the shard that owns its ID.
+     *
+     * @throws MovieServiceException if the owning shard cannot be reached
+     */
+    public Optional<Movie> getMovieById(long id) {
+        int owner = shard.shardFor(id);
+        if (!shard.isSharded() || owner == shard.getShardIndex()) {
+            return movieService.getMovieById(id);
+        }
+        try {
+            return shardClient.getMovie(shard.nodeFor(owner), id, timeoutMillis);
+        } catch (IOException e) {
+            throw new MovieServiceException("Shard " + owner + " could not be reached for movie " + id, e);
+        }
+    }
+
+    /**
+     * K-way merge of per-shard results that are each already in ID order.
+     */
+    static List<Movie> merge(List<List<Movie>> answers) {
+        if (answers.size() == 1) {
+            return answers.get(0);
+        }
+        int total = 0;
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, answers.size()),
+                Comparator.comparingLong((int[] head) -> answers.get(head[0]).get(head[1]).getId()));
+        for (int i = 0; i < answers.size(); i++) {
+            total += answers.get(i).size();
+            if (!answers.get(i).isEmpty()) {
+                heads.add(new int[] {i, 0});
+            }
+        }
+        if (total == 0) {
+            return Collections.emptyList();
+        }
+        List<Movie> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Movie> answer = answers.get(head[0]);
+            merged.add(answer.get(head[1]));
+            if (++head[1] < answer.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merged answer from every shard. When a shard fails or times out the result is still
+ * returned, marked partial, with the reason listed per shard.
+ */
+public class ShardedSearchResult {
+
+    private final List<Movie> movies;
+    private final int shardsQueried;
+    private final Map<Integer, String> failedShards;
+
+    public ShardedSearchResult(List<Movie> movies, int shardsQueried, Map<Integer, String> failedShards) {
+        this.movies = movies;
+        this.shardsQueried = shardsQueried;
+        this.failedShards = failedShards;
+    }
+
+    /** Matches from the shards that answered, in ID order. */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    public int getShardsQueried() {
+        return shardsQueried;
+    }
+
+    /** Shard index to failure reason. */
+    public Map<Integer, String> getFailedShards() {
+        return failedShards;
+    }
+
+    public boolean isPartial() {
+        return !failedShards.isEmpty();
+    }
+}
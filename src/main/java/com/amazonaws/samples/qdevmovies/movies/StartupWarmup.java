@@ -0,0 +1,243 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.stereotype.Component;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Synthetic warm-up that runs before the application reports ready.
+ *
+ * Spring Boot reports the application ready only after every {@link ApplicationRunner} has
+ * returned. Until then {@link ReadinessGateFilter} answers outside traffic with a 503, while
+ * this exercises the hot paths over real HTTP: the movie list, details pages, suggestions and
+ * a few searches. That JIT-compiles the request path, fills the Thymeleaf template cache (the
+ * warmup profile enables it) and waits for the similar-movie index. Rounds repeat until the
+ * p99 of a round stays under the target, and the time from JVM start to the first good p99 is
+ * reported at {@code /api/admin/warmup}.
+ *
+ * Searches share the localhost client's admission token bucket, so the warm-up spends at most
+ * half of the configured burst on them.
+ */
+@Component
+public class StartupWarmup implements ApplicationRunner {
+    private static final Logger logger = LogManager.getLogger(StartupWarmup.class);
+
+    /** Details pages requested per round; enough to cover the template, not the whole catalog. */
+    private static final int DETAIL_PAGES_PER_ROUND = 20;
+    private static final int REQUEST_TIMEOUT_MILLIS = 5000;
+
+    @Autowired
+    private WebServerApplicationContext applicationContext;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieSimilarityService movieSimilarityService;
+
+    @Autowired
+    private ReadinessGateFilter readinessGateFilter;
+
+    @Value("${movies.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${movies.warmup.target-p99-millis:25}")
+    private long targetP99Millis;
+
+    @Value("${movies.warmup.stable-rounds:3}")
+    private int stableRounds;
+
+    @Value("${movies.warmup.max-rounds:200}")
+    private int maxRounds;
+
+    @Value("${movies.warmup.max-millis:30000}")
+    private long maxMillis;
+
+    @Value("${movies.warmup.exit-after-warmup:false}")
+    private boolean exitAfterWarmup;
+
+    @Value("${movies.admission.burst:20}")
+    private int admissionBurst;
+
+    private volatile Map<String, Object> report = Collections.singletonMap("enabled", false);
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            report = warmUp();
+        }
+        if (exitAfterWarmup) {
+            // Used by the AppCDS training run: a normal exit writes the class archive
+            logger.info("Warm-up complete, exiting as requested");
+            System.exit(SpringApplication.exit(applicationContext));
+        }
+    }
+
+    /**
+     * Warm-up results, or {@code enabled: false} if it did not run.
+     */
+    public Map<String, Object> getReport() {
+        return report;
+    }
+
+    private Map<String, Object> warmUp() {
+        long jvmStartupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long start = System.nanoTime();
+        boolean similarReady = movieSimilarityService.awaitReady(maxMillis);
+
+        String baseUrl = "http://localhost:" + applicationContext.getWebServer().getPort();
+        List<String> pages = pagesToWarm(baseUrl);
+        List<String> searches = searchesToWarm(baseUrl);
+        int searchBudget = admissionBurst / 2;
+
+        List<Long> roundP99s = new ArrayList<>();
+        long firstGoodP99Uptime = -1;
+        int goodRounds = 0;
+        int requests = 0;
+        int failures = 0;
+        int round = 0;
+        while (round < maxRounds && goodRounds < stableRounds
+                && System.nanoTime() - start < maxMillis * 1_000_000) {
+            List<String> urls = new ArrayList<>(pages);
+            if (searchBudget > 0) {
+                urls.add(searches.get(round % searches.size()));
+                searchBudget--;
+            }
+            long[] latencies = new long[urls.size()];
+            for (int i = 0; i < urls.size(); i++) {
+                long requestStart = System.nanoTime();
+                if (!get(urls.get(i))) {
+                    failures++;
+                }
+                latencies[i] = System.nanoTime() - requestStart;
+            }
+            requests += urls.size();
+            long p99Millis = p99(latencies) / 1_000_000;
+            roundP99s.add(p99Millis);
+            round++;
+            if (p99Millis <= targetP99Millis) {
+                goodRounds++;
+                if (firstGoodP99Uptime < 0) {
+                    firstGoodP99Uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+                }
+            } else {
+                goodRounds = 0;
+            }
+        }
+
+        long warmupMillis = (System.nanoTime() - start) / 1_000_000;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", true);
+        result.put("jvmStartupMillis", jvmStartupMillis);
+        result.put("warmupMillis", warmupMillis);
+        result.put("rounds", round);
+        result.put("requests", requests);
+        result.put("failedRequests", failures);
+        result.put("searchRequests", admissionBurst / 2 - searchBudget);
+        result.put("similarMoviesReady", similarReady);
+        result.put("refusedRequests", readinessGateFilter.getRefused());
+        result.put("targetP99Millis", targetP99Millis);
+        result.put("firstRoundP99Millis", roundP99s.isEmpty() ? null : roundP99s.get(0));
+        result.put("lastRoundP99Millis", roundP99s.isEmpty() ? null : roundP99s.get(roundP99s.size() - 1));
+        result.put("reachedTarget", goodRounds >= stableRounds);
+        result.put("timeToFirstGoodP99Millis", firstGoodP99Uptime < 0 ? null : firstGoodP99Uptime);
+        logger.info("Warm-up finished in {} ms after {} ms of startup: {}", warmupMillis, jvmStartupMillis, result);
+        return Collections.unmodifiableMap(result);
+    }
+
+    private List<String> pagesToWarm(String baseUrl) {
+        List<String> pages = new ArrayList<>();
+        pages.add(baseUrl + "/movies");
+        List<Movie> movies = movieService.getAllMovies();
+        for (int i = 0; i < Math.min(DETAIL_PAGES_PER_ROUND, movies.size()); i++) {
+            Movie movie = movies.get(i);
+            pages.add(baseUrl + "/movies/" + movie.getId() + "/details");
+            String name = movie.getMovieName().trim();
+            if (!name.isEmpty()) {
+                pages.add(baseUrl + "/api/movies/suggest?prefix="
+                        + encode(name.substring(0, Math.min(3, name.length()))));
+            }
+        }
+        return pages;
+    }
+
+    private List<String> searchesToWarm(String baseUrl) {
+        List<String> searches = new ArrayList<>();
+        for (String genre : movieService.getAllGenres()) {
+            searches.add(baseUrl + "/movies/search?genre=" + encode(genre.toLowerCase(Locale.ROOT)));
+            searches.add(baseUrl + "/api/movies/search?genre=" + encode(genre) + "&minRating=3");
+        }
+        if (searches.isEmpty()) {
+            searches.add(baseUrl + "/api/movies/search");
+        }
+        return searches;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Request a page past the readiness gate and read the whole body, as a browser would.
+     */
+    private boolean get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty(ReadinessGateFilter.WARMUP_HEADER, readinessGateFilter.getWarmupToken());
+            connection.setConnectTimeout(REQUEST_TIMEOUT_MILLIS);
+            connection.setReadTimeout(REQUEST_TIMEOUT_MILLIS);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) >= 0) {
+                        // Drain so the connection can be reused
+                    }
+                }
+            }
+            if (status >= 400) {
+                logger.warn("Warm-up request {} answered with HTTP {}", url, status);
+            }
+            return status < 400;
+        } catch (IOException e) {
+            logger.warn("Warm-up request {} failed: {}", url, e.getMessage());
+            return false;
+        }
+    }
+
+    static long p99(long[] latencies) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(sorted.length * 0.99) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,34 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Wires the readiness gate that keeps traffic out while {@link StartupWarmup} runs.
+ */
+@Configuration
+public class StartupWarmupConfig {
+
+    @Bean
+    public ReadinessGateFilter readinessGateFilter(ApplicationAvailability availability) {
+        return new ReadinessGateFilter(availability);
+    }
+
+    /**
+     * Only gates when the warm-up is on; without it the app is ready moments after Tomcat starts.
+     */
+    @Bean
+    public FilterRegistrationBean<ReadinessGateFilter> readinessGateFilterRegistration(
+            ReadinessGateFilter readinessGateFilter,
+            @Value("${movies.warmup.enabled:false}") boolean enabled) {
+        FilterRegistrationBean<ReadinessGateFilter> registration = new FilterRegistrationBean<>(readinessGateFilter);
+        // Ahead of admission control, so turned-away requests spend no search tokens
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
@@ -0,0 +1,141 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token bucket, stored as a single lock-free counter per client.
+ *
+ * Each bucket keeps only its "theoretical arrival time" (the GCRA form of a token bucket):
+ * a request is admitted if that time is no more than {@code burst} intervals ahead of now,
+ * and admitting it pushes the time forward by one interval with a CAS. Buckets live in a
+ * {@link ConcurrentHashMap}, so different clients never contend with each other.
+ *
+ * At most {@code maxClients} buckets are tracked. When the map is full, idle buckets are swept
+ * out at most once per refill period, so the sweep's cost is spread over many requests. New
+ * clients that still find no room share a single overflow bucket, which caps both memory and
+ * the rate a flood of distinct client keys can get through.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxClients;
+    private final long sweepIntervalNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    /** Reserved slots in {@link #buckets}; taken before inserting so the bound holds under races. */
+    private final AtomicInteger trackedClients = new AtomicInteger();
+    private final AtomicLong nextSweep = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger sweeps = new AtomicInteger();
+    private final AtomicLong overflowBucket;
+    private final LongAdder overflowRequests = new LongAdder();
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        this(permitsPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients, LongSupplier clock) {
+        if (permitsPerSecond <= 0 || burst <= 0 || maxClients <= 0) {
+            throw new IllegalArgumentException("Rate, burst and client capacity must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = intervalNanos * (burst - 1);
+        this.maxClients = maxClients;
+        // A bucket is idle once fully refilled, so sweeping more often than that finds little
+        this.sweepIntervalNanos = Math.max(TimeUnit.SECONDS.toNanos(1), burstToleranceNanos + intervalNanos);
+        this.clock = clock;
+        this.overflowBucket = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Take one token for the client if available. Never blocks.
+     *
+     * @return 0 if admitted, otherwise the nanoseconds until a token will be available
+     */
+    public long tryAcquire(String clientKey) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(clientKey);
+        if (bucket == null) {
+            bucket = newBucket(clientKey, now);
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long start = Math.max(arrival, now);
+            long wait = start - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int getTrackedClients() {
+        return trackedClients.get();
+    }
+
+    /** Requests from clients that found the map full and used the shared overflow bucket. */
+    public long getOverflowRequests() {
+        return overflowRequests.sum();
+    }
+
+    int getSweeps() {
+        return sweeps.get();
+    }
+
+    /**
+     * Track a bucket for a new client, or hand out the overflow bucket when there is no room.
+     */
+    private AtomicLong newBucket(String clientKey, long now) {
+        while (true) {
+            int tracked = trackedClients.get();
+            if (tracked >= maxClients) {
+                if (sweepIfDue(now)) {
+                    continue;
+                }
+                overflowRequests.increment();
+                return overflowBucket;
+            }
+            if (trackedClients.compareAndSet(tracked, tracked + 1)) {
+                break;
+            }
+        }
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong existing = buckets.putIfAbsent(clientKey, created);
+        if (existing != null) {
+            trackedClients.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+
+    /**
+     * Drop buckets that have fully refilled - they behave exactly like a brand new bucket.
+     * Runs at most once per sweep interval, on whichever thread claims it.
+     *
+     * @return True if this call swept
+     */
+    private boolean sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now < due || !nextSweep.compareAndSet(due, now + sweepIntervalNanos)) {
+            return false;
+        }
+        sweeps.incrementAndGet();
+        Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, AtomicLong> entry = it.next();
+            if (entry.getValue().get() <= now && buckets.remove(entry.getKey(), entry.getValue())) {
+                trackedClients.decrementAndGet();
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonicalizes repeated strings, such as genres and director names, so equal values parsed
+ * from different records share one instance. Unlike {@link String#intern()} the pool never
+ * evicts, so create one per load and drop it when the load is done: the loaded records keep
+ * the shared strings alive, and anything parsed later is not pinned by the pool.
+ */
+public class StringInterner {
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * @return The canonical instance equal to {@code value}, or null for null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookups.increment();
+        String canonical = pool.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    /** Number of distinct strings in the pool. */
+    public int size() {
+        return pool.size();
+    }
+
+    /** Number of values canonicalized so far, including repeats. */
+    public long getLookups() {
+        return lookups.sum();
+    }
+}
@@ -0,0 +1,173 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for the rate limiting and load shedding that guard the treasure hunt.
+ */
+public class AdmissionControlTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    @DisplayName("Should allow a burst then refill at the configured rate")
+    public void testTokenBucketBurstAndRefill() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 5, 100, now::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("scraper"), "Burst request " + i + " should be admitted!");
+        }
+        long wait = limiter.tryAcquire("scraper");
+        assertTrue(wait > 0, "Sixth request in the same instant should be rejected!");
+        assertTrue(wait <= TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertEquals(0, limiter.tryAcquire("honest-sailor"), "Other clients have their own bucket!");
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, limiter.tryAcquire("scraper"), "One token should refill after 100ms at 10/s!");
+        assertTrue(limiter.tryAcquire("scraper") > 0);
+    }
+
+    @Test
+    @DisplayName("Should evict idle buckets when the client map is full")
+    public void testTokenBucketEviction() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, 2, now::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limiter.tryAcquire("c");
+        assertEquals(1, limiter.getTrackedClients(), "Fully refilled buckets should be dropped!");
+    }
+
+    @Test
+    @DisplayName("Should never track more clients than the cap and sweep at most once per refill")
+    public void testTokenBucketHardBound() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2, 3, now::get);
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (limiter.tryAcquire("spoofed-" + i) == 0) {
+                admitted++;
+            }
+        }
+        assertEquals(3, limiter.getTrackedClients(), "The client map must not grow past its cap!");
+        assertEquals(3 + 2, admitted, "Untracked clients should share one overflow bucket!");
+        assertEquals(997, limiter.getOverflowRequests());
+        assertEquals(1, limiter.getSweeps(), "A full map should not be swept on every request!");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire("late-sailor"), "Idle buckets should make room after a refill!");
+        assertEquals(1, limiter.getTrackedClients());
+        assertEquals(2, limiter.getSweeps());
+    }
+
+    @Test
+    @DisplayName("Should reject immediately when the concurrency limit is reached")
+    public void testConcurrencyLimitRejects() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 100, now::get);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(), "Third concurrent request should be shed!");
+        limiter.release(1_000_000);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit when latency rises and grow it when latency is healthy")
+    public void testConcurrencyLimitAdapts() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 100, 100, now::get);
+
+        // Healthy windows at full utilisation establish the baseline and let the limit grow
+        for (int i = 0; i < 5; i++) {
+            runWindow(limiter, limiter.getLimit(), TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "Limit should grow while latency stays at baseline, was " + grown);
+
+        // Latency quadruples: the limiter should back off
+        for (int i = 0; i < 5; i++) {
+            runWindow(limiter, limiter.getLimit(), TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertTrue(limiter.getLimit() < grown, "Limit should shrink when latency rises!");
+        assertTrue(limiter.getLimit() >= 2, "Limit should never drop below the minimum!");
+    }
+
+    @Test
+    @DisplayName("Should return 429 with Retry-After when a client exceeds its rate")
+    public void testFilterShedsWithTooManyRequests() throws Exception {
+        SearchAdmissionFilter filter = new SearchAdmissionFilter(
+                new TokenBucketRateLimiter(1, 2, 100, now::get),
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 1000, now::get));
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse ok = new MockHttpServletResponse();
+            filter.doFilter(searchRequest(), ok, new MockFilterChain());
+            assertEquals(200, ok.getStatus());
+        }
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(searchRequest(), rejected, chain);
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        assertNull(chain.getRequest(), "Rejected requests must never reach the controller!");
+
+        assertEquals(2L, filter.getMetrics().get("accepted"));
+        assertEquals(1L, filter.getMetrics().get("rejectedRateLimited"));
+        assertEquals(0, filter.getMetrics().get("inFlight"));
+    }
+
+    private void runWindow(AdaptiveConcurrencyLimiter limiter, int concurrency, long latencyNanos) {
+        int acquired = 0;
+        for (int i = 0; i < concurrency && limiter.tryAcquire(); i++) {
+            acquired++;
+        }
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+
+    @Test
+    @DisplayName("Should let cluster peers skip the rate limit on shard searches only")
+    public void testPeerShardSearches() throws Exception {
+        SearchAdmissionFilter filter = new SearchAdmissionFilter(
+                new TokenBucketRateLimiter(1, 1, 100, now::get),
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 1000, now::get),
+                Collections.singleton("10.0.0.2"));
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(shardSearchRequest("10.0.0.2"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus(), "Peers should not be rate limited on shard searches!");
+        }
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(shardSearchRequest("10.0.0.9"), first, new MockFilterChain());
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(shardSearchRequest("10.0.0.9"), second, new MockFilterChain());
+        assertEquals(200, first.getStatus());
+        assertEquals(429, second.getStatus(), "Strangers calling the shard directly should be rate limited!");
+        assertEquals(3L, filter.getMetrics().get("peerShardSearches"));
+    }
+
+    private static MockHttpServletRequest shardSearchRequest(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", AdmissionControlConfig.SHARD_SEARCH_PATH);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static MockHttpServletRequest searchRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/search");
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+}
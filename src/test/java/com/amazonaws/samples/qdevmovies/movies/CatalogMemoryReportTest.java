@@ -0,0 +1,140 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.StringInterner;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for packing the treasure chest tighter without losing a single doubloon.
+ */
+public class CatalogMemoryReportTest {
+
+    @Test
+    @DisplayName("Should share one instance of repeated genres, directors and reviewers")
+    public void testLoaderInternsRepeatedStrings() {
+        List<Movie> movies = new MovieService().getAllMovies();
+        for (Movie a : movies) {
+            for (Movie b : movies) {
+                if (a.getGenre().equals(b.getGenre())) {
+                    assertSame(a.getGenre(), b.getGenre(), "Equal genres should be one instance!");
+                }
+            }
+        }
+
+        JSONObject json = new JSONObject().put("userName", "Captain Hook")
+                .put("avatarEmoji", "🪝").put("rating", 4.0).put("comment", "Tick tock");
+        StringInterner strings = new StringInterner();
+        Review first = ReviewService.parseReview(json, strings);
+        Review second = ReviewService.parseReview(new JSONObject(json.toString()), strings);
+        assertSame(first.getUserName(), second.getUserName());
+        assertSame(first.getAvatarEmoji(), second.getAvatarEmoji());
+    }
+
+    @Test
+    @DisplayName("Should not pin strings from replicated or remote records in any pool")
+    public void testParsingOutsideLoadsDoesNotIntern() {
+        JSONObject movie = new JSONObject().put("id", 99).put("movieName", "Flotsam").put("director", "Nobody")
+                .put("year", 2000).put("genre", "Drama").put("description", "Adrift").put("duration", 90)
+                .put("imdbRating", 3.0);
+        Movie first = MovieService.parseMovie(movie);
+        Movie second = MovieService.parseMovie(new JSONObject(movie.toString()));
+        assertNotSame(first.getDirector(), second.getDirector(), "Upserts and shard results should not be pooled!");
+
+        JSONObject review = new JSONObject().put("userName", "Castaway")
+                .put("avatarEmoji", "🏝️").put("rating", 2.0).put("comment", "Wet");
+        assertNotSame(ReviewService.parseReview(review).getUserName(),
+                ReviewService.parseReview(new JSONObject(review.toString())).getUserName());
+    }
+
+    @Test
+    @DisplayName("Should decode compact descriptions and comments back to the original text")
+    public void testCompactTextRoundTrip() {
+        String description = "Ein Schiff fährt über das Meer — 海賊 🏴‍☠️";
+        Movie movie = new Movie(99, "Test", "Director", 2000, "Drama", description, 100, 4.0);
+        assertEquals(description, movie.getDescription());
+        assertNull(new Movie(98, "Test", "Director", 2000, "Drama", null, 100, 4.0).getDescription());
+
+        Review review = new Review("Pirate", "🦜", 5.0, "Arrr! ⚓");
+        assertEquals("Arrr! ⚓", review.getComment());
+    }
+
+    @Test
+    @DisplayName("Should report smaller movies and reviews for a large catalog")
+    @SuppressWarnings("unchecked")
+    public void testSyntheticCatalogFootprint() {
+        Map<String, Object> report = CatalogMemoryReport.measureSynthetic(100_000, 5);
+        Map<String, Object> movies = (Map<String, Object>) report.get("movies");
+        Map<String, Object> reviews = (Map<String, Object>) report.get("reviews");
+
+        assertEquals(100_000, movies.get("count"));
+        assertEquals(500_000, reviews.get("count"));
+        assertTrue((Long) movies.get("bytesPerItemAfter") < (Long) movies.get("bytesPerItemBefore"),
+                "Movies should shrink: " + movies);
+        assertTrue((Long) reviews.get("bytesPerItemAfter") < (Long) reviews.get("bytesPerItemBefore"),
+                "Reviews should shrink: " + reviews);
+        assertEquals(10 + 20_000, report.get("internedCatalogStrings"), "Ten genres and one director per five movies");
+        assertEquals(CatalogMemoryReport.internerBytes(10 + 20_000)
+                + CatalogMemoryReport.internerBytes((Integer) report.get("internedReviewStrings")),
+                report.get("internerBytes"));
+    }
+
+    @Test
+    @DisplayName("Should count the interner's table and one node per pooled string")
+    public void testInternerBytes() {
+        long empty = CatalogMemoryReport.internerBytes(0);
+        assertTrue(empty > 0);
+        assertEquals(empty + 16 + 16 * 4 + 11 * 32, CatalogMemoryReport.internerBytes(11),
+                "Eleven strings fit in the initial 16-slot table");
+        assertEquals(empty + 16 + 32 * 4 + 12 * 32, CatalogMemoryReport.internerBytes(12),
+                "The twelfth string doubles the table");
+    }
+
+    @Test
+    @DisplayName("Should measure the live catalog and count shared strings once")
+    @SuppressWarnings("unchecked")
+    public void testMeasureLiveCatalog() {
+        MovieService movieService = new MovieService();
+        ReviewService reviewService = new ReviewService();
+        Map<String, Object> report = CatalogMemoryReport.measure(movieService.getAllMovies(),
+                reviewService.getAllReviews());
+        assertEquals(movieService.getAllMovies().size(), ((Map<String, Object>) report.get("movies")).get("count"));
+        assertEquals(reviewService.getAllReviews().size(), ((Map<String, Object>) report.get("reviews")).get("count"));
+
+        Movie a = new Movie(1, "A", "Same Director", 2000, "Drama", "x", 100, 4.0);
+        Movie b = new Movie(2, "B", a.getDirector(), 2000, a.getGenre(), "y", 100, 4.0);
+        long one = movieBytesAfter(CatalogMemoryReport.measure(Collections.singletonList(a), Collections.emptyList()));
+        long two = movieBytesAfter(CatalogMemoryReport.measure(Arrays.asList(a, b), Collections.emptyList()));
+        long shared = CatalogMemoryReport.stringBytes("Same Director") + CatalogMemoryReport.stringBytes("Drama");
+        assertEquals(2 * one - shared, two, "Shared strings should be counted once!");
+    }
+
+    @Test
+    @DisplayName("Should only weigh a made-up chest for the crew aboard, and only a small one")
+    public void testMemoryEndpointLocalAndBounded() {
+        AdminController controller = new AdminController();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+        assertThrows(SecurityException.class, () -> controller.getMemoryReport(request, 1000, 5));
+
+        request.setRemoteAddr("127.0.0.1");
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.getMemoryReport(request, CatalogMemoryReport.MAX_SYNTHETIC_MOVIES + 1, 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.getMemoryReport(request, 1000, CatalogMemoryReport.MAX_SYNTHETIC_REVIEWS_PER_MOVIE + 1));
+        assertNotNull(controller.getMemoryReport(request, 1000, 5).get("movies"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long movieBytesAfter(Map<String, Object> report) {
+        return (Long) ((Map<String, Object>) report.get("movies")).get("bytesAfter");
+    }
+}
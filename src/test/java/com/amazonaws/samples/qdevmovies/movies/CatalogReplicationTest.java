@@ -0,0 +1,296 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for keeping every ship's treasure chest in step with the flagship.
+ */
+public class CatalogReplicationTest {
+
+    private static final Movie NEW_TREASURE = new Movie(13, "The Flying Dutchman", "Captain Vanderdecken",
+            2024, "Adventure/Fantasy", "A ghost ship sails the seven seas forever.", 121, 4.8);
+
+    private static CatalogReplicationService replica(MovieService movieService, ReviewService reviewService,
+                                                     List<CatalogChangedEvent> events) {
+        return replica(movieService, reviewService, events, 10000);
+    }
+
+    private static CatalogReplicationService replica(MovieService movieService, ReviewService reviewService,
+                                                     List<CatalogChangedEvent> events, int logRetention) {
+        return new CatalogReplicationService(movieService, reviewService,
+                event -> events.add((CatalogChangedEvent) event), "standalone", "", "", 1000, 1000, 500, logRetention);
+    }
+
+    @Test
+    @DisplayName("Should apply changes in version order and skip ones already applied")
+    public void testApplyInVersionOrder() {
+        MovieService movieService = new MovieService();
+        ReviewService reviewService = new ReviewService();
+        List<CatalogChangedEvent> events = new ArrayList<>();
+        CatalogReplicationService replication = replica(movieService, reviewService, events);
+        int reviewsBefore = reviewService.getReviewsForMovie(1).size();
+
+        replication.apply(Arrays.asList(
+                CatalogChange.upsertMovie(1, NEW_TREASURE),
+                CatalogChange.appendReview(2, 1, new Review("Pirate", "🏴‍☠️", 5.0, "Arrr!")),
+                CatalogChange.removeMovie(3, 2)));
+
+        assertEquals(3, replication.getVersion());
+        assertTrue(movieService.getMovieById(13L).isPresent());
+        assertFalse(movieService.getMovieById(2L).isPresent());
+        assertEquals(reviewsBefore + 1, reviewService.getReviewsForMovie(1).size());
+        assertEquals(1, events.size(), "One batch should publish one event!");
+        assertTrue(events.get(0).isMoviesChanged());
+        assertEquals(1, movieService.searchMovieTreasures(MovieSearchCriteria.of("dutchman", null, null)).size(),
+                "Search indexes should see the new movie!");
+
+        replication.apply(Arrays.asList(CatalogChange.upsertMovie(3, NEW_TREASURE),
+                CatalogChange.removeMovie(4, 13)));
+        assertEquals(4, replication.getVersion(), "Already applied versions should be skipped!");
+        assertFalse(movieService.getMovieById(13L).isPresent());
+
+        assertThrows(IllegalStateException.class,
+                () -> replication.apply(Arrays.asList(CatalogChange.removeMovie(6, 1))),
+                "A gap in versions should be refused!");
+        assertEquals(4, replication.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should rebuild derived indexes before publishing the new version")
+    public void testEventPublishedBeforeVersion() {
+        List<Long> versionsSeenByListeners = new ArrayList<>();
+        CatalogReplicationService[] holder = new CatalogReplicationService[1];
+        holder[0] = new CatalogReplicationService(new MovieService(), new ReviewService(),
+                event -> versionsSeenByListeners.add(holder[0].getVersion()), "standalone", "", "", 1000, 1000, 500, 100);
+
+        holder[0].upsertMovie(NEW_TREASURE);
+        assertEquals(Arrays.asList(0L), versionsSeenByListeners,
+                "Listeners must finish before readers can see the version they rebuilt for!");
+        assertEquals(1, holder[0].getVersion());
+    }
+
+    @Test
+    @DisplayName("Should keep a bounded log and send lagging or restarted followers to a snapshot")
+    @SuppressWarnings("unchecked")
+    public void testLogCompactionAndSnapshots() {
+        MovieService movieService = new MovieService();
+        ReviewService reviewService = new ReviewService();
+        CatalogReplicationService leader = replica(movieService, reviewService, new ArrayList<>(), 10);
+        String epoch = (String) leader.getChanges(0, 10, null).get("epoch");
+        for (int i = 0; i < 30; i++) {
+            leader.appendReview(1, new Review("Pirate " + i, "🦜", 4.0, "Arrr"));
+        }
+
+        assertTrue((Integer) leader.getStatus().get("logSize") <= 11, "The log should stay near its retention!");
+        Map<String, Object> behind = leader.getChanges(0, 10, epoch);
+        assertEquals(true, behind.get("snapshotRequired"), "Compacted changes must not be skipped silently!");
+        Map<String, Object> recent = leader.getChanges(28, 10, epoch);
+        assertEquals(false, recent.get("snapshotRequired"));
+        assertEquals(2, ((List<Object>) recent.get("changes")).size());
+        assertEquals(true, leader.getChanges(28, 10, "an-older-leader").get("snapshotRequired"),
+                "A follower from another leader epoch must resync!");
+        assertEquals(true, leader.getChanges(31, 10, epoch).get("snapshotRequired"),
+                "A follower ahead of the leader must resync!");
+
+        MovieService followerMovies = new MovieService();
+        ReviewService followerReviews = new ReviewService();
+        List<CatalogChangedEvent> events = new ArrayList<>();
+        CatalogReplicationService follower = replica(followerMovies, followerReviews, events);
+        follower.apply(Arrays.asList(CatalogChange.upsertMovie(1, NEW_TREASURE)));
+        follower.applySnapshot(leader.getSnapshot());
+
+        assertEquals(30, follower.getVersion());
+        assertFalse(followerMovies.getMovieById(13L).isPresent(), "The snapshot replaces the old catalog!");
+        assertEquals(reviewService.getReviewsForMovie(1).size(), followerReviews.getReviewsForMovie(1).size());
+        assertTrue(events.get(events.size() - 1).isMoviesChanged());
+    }
+
+    @Test
+    @DisplayName("Should stow orders that arrive while the chest is being rebuilt in one batch")
+    public void testConcurrentWritesCommitTogether() throws Exception {
+        MovieService movieService = new MovieService();
+        List<CatalogChangedEvent> events = new ArrayList<>();
+        CountDownLatch firstBatchApplying = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        CatalogReplicationService leader = new CatalogReplicationService(movieService, new ReviewService(), event -> {
+            events.add((CatalogChangedEvent) event);
+            firstBatchApplying.countDown();
+            try {
+                releaseFirstBatch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "leader", "", "", 1000, 1000, 500, 10000);
+
+        Thread first = new Thread(() -> leader.upsertMovie(NEW_TREASURE));
+        first.start();
+        assertTrue(firstBatchApplying.await(10, TimeUnit.SECONDS));
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Movie movie = new Movie(100 + i, "Ghost Ship " + i, "Captain " + i, 2024, "Adventure",
+                    "Another ghost ship.", 100, 4.0);
+            Thread writer = new Thread(() -> leader.upsertMovie(movie));
+            writers.add(writer);
+            writer.start();
+        }
+        // Every writer has queued its change once all of them wait for the lock
+        awaitTrue(() -> writers.stream().allMatch(writer -> writer.getState() == Thread.State.BLOCKED));
+        releaseFirstBatch.countDown();
+        first.join();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(11, leader.getVersion());
+        assertEquals(2, events.size(), "Queued writes should share one catalog rebuild!");
+        assertEquals(11, events.get(1).getVersion());
+        assertEquals(10, leader.getChangesSince(1, 100).size());
+        assertTrue(movieService.getMovieById(109L).isPresent());
+    }
+
+    @Test
+    @DisplayName("Should only take orders from this ship and the rest of the fleet")
+    public void testTrustedCallers() {
+        CatalogReplicationService leader = new CatalogReplicationService(new MovieService(), new ReviewService(),
+                event -> { }, "leader", "", "http://192.0.2.10:8080, http://192.0.2.11:8080", 1000, 1000, 500, 10000);
+        assertTrue(leader.isTrustedCaller("127.0.0.1"));
+        assertTrue(leader.isTrustedCaller("0:0:0:0:0:0:0:1"));
+        assertTrue(leader.isTrustedCaller("192.0.2.11"), "Followers should be trusted");
+        assertFalse(leader.isTrustedCaller("203.0.113.7"));
+
+        CatalogReplicationService follower = new CatalogReplicationService(new MovieService(), new ReviewService(),
+                event -> { }, "follower", "http://192.0.2.10:8080", "", 1000, 1000, 500, 10000);
+        assertTrue(follower.isTrustedCaller("192.0.2.10"), "The leader should be trusted to notify");
+        assertFalse(follower.isTrustedCaller("192.0.2.11"));
+    }
+
+    @Test
+    @DisplayName("Should round-trip changes through the wire format")
+    public void testChangeWireFormat() {
+        CatalogChange change = CatalogChange.fromJson(new JSONObject(CatalogChange.upsertMovie(7, NEW_TREASURE).toMap()));
+        assertEquals(7, change.getVersion());
+        assertEquals(CatalogChange.Type.UPSERT_MOVIE, change.getType());
+        assertEquals(NEW_TREASURE.getMovieName(), change.getMovie().getMovieName());
+        assertEquals(NEW_TREASURE.getImdbRating(), change.getMovie().getImdbRating());
+
+        Review review = new Review("Pirate", "🦜", 4.5, "Shiver me timbers");
+        CatalogChange appended = CatalogChange.fromJson(new JSONObject(CatalogChange.appendReview(8, 3, review).toMap()));
+        assertEquals(3, appended.getMovieId());
+        assertEquals("🦜", appended.getReview().getAvatarEmoji());
+    }
+
+    @Test
+    @DisplayName("Should resync a follower from a snapshot when the leader restarts")
+    public void testLeaderRestartResyncsFollower() throws Exception {
+        int leaderPort = freePort();
+        int followerPort = freePort();
+        String[] leaderArgs = {
+                "--server.port=" + leaderPort,
+                "--movies.replication.role=leader",
+                "--movies.replication.followers=http://localhost:" + followerPort,
+                "--logging.level.com.amazonaws.samples.qdevmovies=WARN"};
+        ConfigurableApplicationContext leaderInstance = new SpringApplicationBuilder(MoviesApplication.class).run(leaderArgs);
+        ConfigurableApplicationContext followerInstance = null;
+        try {
+            followerInstance = new SpringApplicationBuilder(MoviesApplication.class).run(
+                    "--server.port=" + followerPort,
+                    "--movies.replication.role=follower",
+                    "--movies.replication.leader-url=http://localhost:" + leaderPort,
+                    "--movies.replication.poll-millis=200",
+                    "--logging.level.com.amazonaws.samples.qdevmovies=WARN");
+            CatalogReplicationService follower = followerInstance.getBean(CatalogReplicationService.class);
+            MovieService followerMovies = followerInstance.getBean(MovieService.class);
+
+            CatalogReplicationService leader = leaderInstance.getBean(CatalogReplicationService.class);
+            leader.upsertMovie(NEW_TREASURE);
+            leader.removeMovie(5);
+            awaitTrue(() -> follower.getVersion() == 2);
+
+            // The restarted leader forgets its log and starts again at version 0
+            leaderInstance.close();
+            leaderInstance = new SpringApplicationBuilder(MoviesApplication.class).run(leaderArgs);
+            leaderInstance.getBean(CatalogReplicationService.class).removeMovie(1);
+            awaitTrue(() -> follower.getVersion() == 1 && !followerMovies.getMovieById(1L).isPresent());
+
+            assertFalse(followerMovies.getMovieById(13L).isPresent(), "Writes the leader lost should be gone!");
+            assertTrue(followerMovies.getMovieById(5L).isPresent());
+            assertEquals(1L, follower.getStatus().get("snapshotsLoaded"));
+        } finally {
+            leaderInstance.close();
+            if (followerInstance != null) {
+                followerInstance.close();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should replicate leader writes to a follower over HTTP")
+    public void testLeaderToFollowerOverHttp() throws Exception {
+        int leaderPort = freePort();
+        int followerPort = freePort();
+        List<ConfigurableApplicationContext> instances = new ArrayList<>();
+        try {
+            instances.add(new SpringApplicationBuilder(MoviesApplication.class).run(
+                    "--server.port=" + leaderPort,
+                    "--movies.replication.role=leader",
+                    "--movies.replication.followers=http://localhost:" + followerPort,
+                    "--logging.level.com.amazonaws.samples.qdevmovies=WARN"));
+            instances.add(new SpringApplicationBuilder(MoviesApplication.class).run(
+                    "--server.port=" + followerPort,
+                    "--movies.replication.role=follower",
+                    "--movies.replication.leader-url=http://localhost:" + leaderPort,
+                    // Long poll interval, so convergence below comes from the leader's notification
+                    "--movies.replication.poll-millis=600000",
+                    "--logging.level.com.amazonaws.samples.qdevmovies=WARN"));
+            CatalogReplicationService leader = instances.get(0).getBean(CatalogReplicationService.class);
+            CatalogReplicationService follower = instances.get(1).getBean(CatalogReplicationService.class);
+            MovieService followerMovies = instances.get(1).getBean(MovieService.class);
+            ReviewService followerReviews = instances.get(1).getBean(ReviewService.class);
+            int reviewsBefore = followerReviews.getReviewsForMovie(3).size();
+
+            leader.upsertMovie(NEW_TREASURE);
+            leader.appendReview(3, new Review("Pirate", "🏴‍☠️", 5.0, "Arrr!"));
+            awaitTrue(() -> follower.getVersion() == 2);
+
+            assertEquals(NEW_TREASURE.getMovieName(), followerMovies.getMovieById(13L).get().getMovieName());
+            assertEquals(reviewsBefore + 1, followerReviews.getReviewsForMovie(3).size());
+            assertFalse(instances.get(1).getBean(MovieSuggestionService.class).suggest("flying", 5).isEmpty(),
+                    "The follower's suggestion trie should be rebuilt!");
+            assertThrows(IllegalStateException.class, () -> follower.removeMovie(1));
+        } finally {
+            for (ConfigurableApplicationContext instance : instances) {
+                instance.close();
+            }
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Follower did not catch up in time!");
+            Thread.sleep(20);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
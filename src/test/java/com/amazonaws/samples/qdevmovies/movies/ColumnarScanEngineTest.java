@@ -0,0 +1,83 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for the segmented, parallel column scan used on very large treasure chests.
+ */
+public class ColumnarScanEngineTest {
+
+    @Test
+    @DisplayName("Should match a sequential scan across segment boundaries, in order")
+    public void testScanMatchesSequentialLoop() {
+        int rows = ColumnarScanEngine.SEGMENT_SIZE * 40 + 123;
+        Random random = new Random(7);
+        double[] years = new double[rows];
+        double[] ratings = new double[rows];
+        int[] genreIds = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            years[i] = 1920 + random.nextInt(100);
+            ratings[i] = random.nextInt(11) / 2.0;
+            genreIds[i] = random.nextInt(5);
+        }
+        boolean[] acceptedGenres = {false, true, false, true, false};
+
+        int[] positions = ColumnarScanEngine.scan(rows, Arrays.asList(
+                ColumnarScanEngine.range(years, 1980, 1999),
+                ColumnarScanEngine.range(ratings, 4.0, Double.POSITIVE_INFINITY),
+                ColumnarScanEngine.lookup(genreIds, acceptedGenres)));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            if (years[i] >= 1980 && years[i] <= 1999 && ratings[i] >= 4.0 && acceptedGenres[genreIds[i]]) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected.size(), positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(expected.get(i).intValue(), positions[i], "Results should stay in catalog order!");
+        }
+    }
+
+    @Test
+    @DisplayName("Should handle empty catalogs and filter lists")
+    public void testScanEdgeCases() {
+        assertEquals(0, ColumnarScanEngine.scan(0, Collections.emptyList()).length);
+        assertEquals(10, ColumnarScanEngine.scan(10, Collections.emptyList()).length);
+    }
+
+    @Test
+    @DisplayName("Should plan a column scan for unindexed filters on large catalogs")
+    public void testPlannerUsesColumnScan() {
+        List<Movie> catalog = new ArrayList<>();
+        String[] genres = {"Drama", "Action/Crime", "Comedy/Romance", "Adventure/Sci-Fi"};
+        Random random = new Random(11);
+        for (int i = 1; i <= 50_000; i++) {
+            catalog.add(new Movie(i, "Treasure " + i, "Captain " + random.nextInt(50), 1950 + random.nextInt(70),
+                    genres[random.nextInt(genres.length)], "", 80 + random.nextInt(100), random.nextInt(11) / 2.0));
+        }
+        MovieCatalogStatistics statistics = new MovieCatalogStatistics(catalog);
+        MovieSearchCriteria criteria = new MovieSearchCriteria(
+                "7", null, "a", null, 1960, 2010, 2.0, null, 90, 170);
+
+        MovieQueryPlan columnar = new MovieQueryPlanner(statistics, 10_000).plan(criteria);
+        MovieQueryPlan rowByRow = new MovieQueryPlanner(statistics, Integer.MAX_VALUE).plan(criteria);
+        assertEquals(MovieQueryPlan.AccessPath.COLUMN_SCAN, columnar.getAccessPath());
+        assertEquals(MovieQueryPlan.AccessPath.FULL_SCAN, rowByRow.getAccessPath());
+        assertEquals(Collections.singletonList("name contains '7'"), columnar.getFilterOrder(),
+                "Only the name predicate should be left for row-by-row checks!");
+
+        List<Movie> expected = rowByRow.execute();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, columnar.execute());
+    }
+}
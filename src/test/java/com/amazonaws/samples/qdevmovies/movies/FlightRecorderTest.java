@@ -0,0 +1,288 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for keeping a ship's log of every treasure hunt and page the crew hands out.
+ */
+public class FlightRecorderTest {
+
+    private static final String PREFIX = "com.amazonaws.samples.qdevmovies.";
+
+    private static List<RecordedEvent> events(Path file, String name) throws IOException {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(PREFIX + name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should record catalog loads, searches and review loads with their details")
+    public void testServiceEvents() throws IOException {
+        FlightRecorderService recorder = new FlightRecorderService(5, 16, FlightRecorderService.NO_JVM_SETTINGS, 0, false);
+        Path file = null;
+        try {
+            recorder.start(null, null);
+            MovieService movieService = new MovieService();
+            ReviewService reviewService = new ReviewService();
+            List<Movie> dramas = movieService.searchMovieTreasures(MovieSearchCriteria.of(null, null, "drama"));
+            ReviewPage page = reviewService.getReviewPage(1, ReviewSort.HIGHEST, 1, 2);
+            movieService.updateCatalog(Collections.emptyList(), Collections.singletonList(1L));
+            recorder.stop();
+            file = recorder.dump();
+
+            List<RecordedEvent> loads = events(file, "CatalogLoad");
+            assertEquals(2, loads.size(), "Startup load and update should each be recorded!");
+            assertEquals("movies.json", loads.get(0).getString("source"));
+            assertEquals(12, loads.get(0).getInt("movieCount"));
+            assertEquals("update", loads.get(1).getString("source"));
+            assertEquals(11, loads.get(1).getInt("movieCount"));
+
+            RecordedEvent search = events(file, "MovieSearch").get(0);
+            assertTrue(search.getString("criteria").contains("drama"), search.getString("criteria"));
+            assertEquals(dramas.size(), search.getInt("resultCount"));
+            assertNotNull(search.getString("accessPath"));
+
+            List<RecordedEvent> reviewLoads = events(file, "ReviewLoad");
+            assertEquals("mock-reviews.json", reviewLoads.get(0).getString("source"));
+            assertTrue(reviewLoads.get(0).getInt("reviewCount") > 0);
+            RecordedEvent pageLoad = reviewLoads.get(1);
+            assertEquals(1, pageLoad.getLong("movieId"));
+            assertEquals("highest", pageLoad.getString("sort"));
+            assertEquals(page.getReviews().size(), pageLoad.getInt("reviewCount"));
+            assertEquals(page.getTotalReviews(), pageLoad.getInt("totalReviews"));
+        } finally {
+            recorder.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should start, stop and download a recording with page renders over HTTP")
+    public void testRecordingEndpoints() throws IOException {
+        Path file = Files.createTempFile("movies-test-", ".jfr");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MoviesApplication.class).run(
+                "--server.port=0",
+                "--movies.profiling.settings=none",
+                "--logging.level.com.amazonaws.samples.qdevmovies=WARN")) {
+            String baseUrl = "http://localhost:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            assertEquals(409, request("GET", baseUrl + "/api/admin/recording/download", null));
+            assertEquals(200, request("POST", baseUrl + "/api/admin/recording/start?maxAgeMinutes=5&maxSizeMb=8", null));
+            assertEquals(409, request("POST", baseUrl + "/api/admin/recording/start", null),
+                    "Only one recording should run at a time!");
+            assertEquals(200, request("GET", baseUrl + "/movies/1/details", null));
+            assertEquals(200, request("GET", baseUrl + "/api/movies/search?genre=drama", null));
+            assertEquals(200, request("POST", baseUrl + "/api/admin/recording/stop", null));
+            assertEquals(200, request("GET", baseUrl + "/api/admin/recording/download", file));
+
+            List<RecordedEvent> renders = events(file, "PageRender");
+            assertEquals(1, renders.size(), "Only the page should be recorded as a render: " + renders);
+            assertEquals("/movies/1/details", renders.get(0).getString("path"));
+            assertEquals("movie-details", renders.get(0).getString("view"));
+            assertEquals(200, renders.get(0).getInt("status"));
+            assertTrue(renders.get(0).getLong("renderDuration") <= renders.get(0).getDuration().toNanos());
+            assertFalse(events(file, "MovieSearch").isEmpty());
+            assertFalse(events(file, "ReviewLoad").isEmpty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the crew's environment and system properties out of the log")
+    public void testSecretEventsDisabled() throws IOException {
+        FlightRecorderService recorder = new FlightRecorderService(5, 16, "default", 0, false);
+        for (String name : FlightRecorderService.SECRET_EVENTS) {
+            assertEquals("false", recorder.settings().get(name + "#enabled"));
+        }
+        Path file = null;
+        try {
+            recorder.start(null, null);
+            recorder.stop();
+            file = recorder.dump();
+            List<String> recorded = RecordingFile.readAllEvents(file).stream()
+                    .map(event -> event.getEventType().getName())
+                    .collect(Collectors.toList());
+            assertTrue(recorded.contains("jdk.JVMInformation"), "The default profile's other events should stay on");
+            for (String name : FlightRecorderService.SECRET_EVENTS) {
+                assertFalse(recorded.contains(name), name + " should not be recorded!");
+            }
+        } finally {
+            recorder.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should only hand the recording to callers on this ship")
+    public void testRecordingEndpointsLocalOnly() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("127.0.0.1");
+        AdminController.requireLocal(request);
+        request.setRemoteAddr("::1");
+        AdminController.requireLocal(request);
+        request.setRemoteAddr("203.0.113.7");
+        assertThrows(SecurityException.class, () -> AdminController.requireLocal(request));
+    }
+
+    @Test
+    @DisplayName("Should keep the ship sailing on a JVM without a flight recorder")
+    @SuppressWarnings("unchecked")
+    public void testWithoutJdkJfr() throws Exception {
+        ClassLoader loader = new NoFlightRecorderClassLoader(getClass().getClassLoader());
+        assertThrows(NoClassDefFoundError.class, () -> Class.forName(CatalogLoadEvent.class.getName(), true, loader),
+                "The loader should hide jdk.jfr like a JVM without it");
+        Field supported = loader.loadClass(FlightEvents.class.getName()).getDeclaredField("SUPPORTED");
+        supported.setAccessible(true);
+        assertFalse(supported.getBoolean(null));
+
+        Object movieService = loader.loadClass(MovieService.class.getName()).getConstructor().newInstance();
+        List<?> dramas = (List<?>) movieService.getClass()
+                .getMethod("searchMovieTreasures", String.class, Long.class, String.class)
+                .invoke(movieService, null, null, "drama");
+        assertFalse(dramas.isEmpty());
+
+        Object reviewService = loader.loadClass(ReviewService.class.getName()).getConstructor().newInstance();
+        Class<?> sortClass = loader.loadClass(ReviewSort.class.getName());
+        assertNotNull(reviewService.getClass().getMethod("getReviewPage", long.class, sortClass, int.class, int.class)
+                .invoke(reviewService, 1L, sortClass.getEnumConstants()[0], 1, 2));
+
+        Object interceptor = loader.loadClass(PageRenderInterceptor.class.getName()).getConstructor().newInstance();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ((HandlerInterceptor) interceptor).preHandle(request, response, null);
+        ((HandlerInterceptor) interceptor).postHandle(request, response, null, new ModelAndView("movies"));
+        ((HandlerInterceptor) interceptor).afterCompletion(request, response, null, null);
+
+        Class<?> recorderClass = loader.loadClass(FlightRecorderService.class.getName());
+        Object recorder = recorderClass.getConstructor(long.class, long.class, String.class, long.class, boolean.class)
+                .newInstance(5L, 16L, "default", 0L, true);
+        Method startContinuous = recorderClass.getDeclaredMethod("startContinuous");
+        startContinuous.setAccessible(true);
+        startContinuous.invoke(recorder);
+        Map<String, Object> status = (Map<String, Object>) recorderClass.getMethod("getStatus").invoke(recorder);
+        assertEquals(false, status.get("available"));
+        assertEquals("NONE", status.get("state"));
+        InvocationTargetException failure = assertThrows(InvocationTargetException.class,
+                () -> recorderClass.getMethod("start", Long.class, Long.class).invoke(recorder, null, null));
+        assertTrue(failure.getCause() instanceof IllegalStateException, String.valueOf(failure.getCause()));
+    }
+
+    @Test
+    @DisplayName("Should launch the whole ship on a JVM without a flight recorder")
+    public void testApplicationWithoutJdkJfr() throws Exception {
+        ClassLoader loader = new NoFlightRecorderClassLoader(getClass().getClassLoader());
+        Thread thread = Thread.currentThread();
+        ClassLoader contextLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                loader.loadClass(MoviesApplication.class.getName()))
+                .resourceLoader(new DefaultResourceLoader(loader))
+                .run("--server.port=0", "--movies.profiling.continuous=true",
+                        "--logging.level.com.amazonaws.samples.qdevmovies=WARN")) {
+            assertSame(loader, context.getBean("flightRecorderService").getClass().getClassLoader());
+            String baseUrl = "http://localhost:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort();
+            JSONObject status = new JSONObject(HttpJson.get(baseUrl + "/api/admin/recording", 5000));
+            assertFalse(status.getBoolean("available"));
+            assertEquals(409, request("POST", baseUrl + "/api/admin/recording/start", null));
+            assertEquals(200, request("GET", baseUrl + "/movies", null));
+        } finally {
+            thread.setContextClassLoader(contextLoader);
+        }
+    }
+
+    /**
+     * Loads the app's classes itself and refuses {@code jdk.jfr}, as a Java 8 runtime without
+     * the flight recorder would. Everything else comes from the parent.
+     */
+    private static final class NoFlightRecorderClassLoader extends ClassLoader {
+        private static final String APP_PACKAGE = "com.amazonaws.samples.qdevmovies.";
+
+        NoFlightRecorderClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("jdk.jfr.")) {
+                throw new ClassNotFoundException(name);
+            }
+            if (!name.startsWith(APP_PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = StreamUtils.copyToByteArray(in);
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * Send a request and return its status, saving a successful body to {@code saveTo} if given.
+     */
+    private static int request(String method, String url, Path saveTo) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (body != null) {
+            try (InputStream in = body) {
+                if (saveTo != null && status == 200) {
+                    Files.copy(in, saveTo, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    while (in.read() >= 0) {
+                        // Drain so the connection can be reused
+                    }
+                }
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,151 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for the query planner that charts the fastest course through a treasure hunt.
+ */
+public class MovieQueryPlannerTest {
+
+    private MovieService movieService;
+    private MovieQueryPlanner planner;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+        planner = new MovieQueryPlanner(new MovieCatalogStatistics(movieService.getAllMovies()));
+    }
+
+    @Test
+    @DisplayName("Should drive ID searches with a direct lookup")
+    public void testIdLookup() {
+        MovieQueryPlan plan = planner.plan(MovieSearchCriteria.of("prison", 1L, "drama"));
+        assertEquals(MovieQueryPlan.AccessPath.ID_LOOKUP, plan.getAccessPath());
+        assertEquals(1, plan.getEstimatedCandidates());
+        assertEquals(1, plan.execute().size());
+
+        MovieQueryPlan missing = planner.plan(MovieSearchCriteria.of(null, 999L, null));
+        assertEquals(0, missing.getEstimatedCandidates());
+        assertTrue(missing.execute().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should use the genre index only when it is selective")
+    public void testGenreIndexSelection() {
+        MovieQueryPlan selective = planner.plan(MovieSearchCriteria.of(null, null, "sci"));
+        assertEquals(MovieQueryPlan.AccessPath.GENRE_INDEX, selective.getAccessPath());
+        assertEquals(3, selective.getEstimatedCandidates(), "Genre selectivity should be exact!");
+        assertEquals(3, selective.execute().size());
+
+        MovieQueryPlan broad = planner.plan(MovieSearchCriteria.of(null, null, "drama"));
+        assertEquals(MovieQueryPlan.AccessPath.FULL_SCAN, broad.getAccessPath(),
+                "Most movies be dramas, so scanning is cheaper than the index!");
+        assertEquals(7, broad.execute().size());
+    }
+
+    @Test
+    @DisplayName("Should evaluate cheap, selective predicates first")
+    public void testPredicateOrdering() {
+        MovieQueryPlan plan = planner.plan(MovieSearchCriteria.of("the", null, "drama"));
+        assertEquals(MovieQueryPlan.AccessPath.FULL_SCAN, plan.getAccessPath());
+        assertEquals(Arrays.asList("genre contains 'drama'", "name contains 'the'"), plan.getFilterOrder());
+    }
+
+    @Test
+    @DisplayName("Should answer range filters from the sorted indexes")
+    public void testRangePredicates() {
+        MovieQueryPlan plan = planner.plan(new MovieSearchCriteria(
+                null, null, null, null, 1990, 1994, null, null, null, null));
+        assertEquals(MovieQueryPlan.AccessPath.FULL_SCAN, plan.getAccessPath());
+        List<Movie> nineties = plan.execute();
+        assertEquals(5, nineties.size());
+        for (Movie movie : nineties) {
+            assertTrue(movie.getYear() >= 1990 && movie.getYear() <= 1994);
+        }
+
+        MovieQueryPlan longAndOld = planner.plan(new MovieSearchCriteria(
+                null, null, null, "filmmaker", null, 1980, null, null, 170, null));
+        assertEquals(MovieQueryPlan.AccessPath.YEAR_INDEX, longAndOld.getAccessPath());
+        List<Movie> results = longAndOld.execute();
+        assertEquals(1, results.size());
+        assertEquals("The Family Boss", results.get(0).getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should explain the chosen plan")
+    public void testExplain() {
+        Map<String, Object> explain = movieService.explainSearch(
+                new MovieSearchCriteria("the", null, "sci", null, null, null, 4.5, null, null, null));
+        assertEquals(12, explain.get("catalogSize"));
+        assertEquals(MovieQueryPlan.AccessPath.GENRE_INDEX, explain.get("accessPath"));
+        assertEquals("genre contains 'sci'", explain.get("accessPredicate"));
+        assertEquals(3L, explain.get("estimatedCandidates"));
+        List<?> filters = (List<?>) explain.get("filters");
+        assertEquals(2, filters.size());
+        assertTrue(explain.containsKey("estimatedRows"));
+    }
+
+    @Test
+    @DisplayName("Should reject inverted ranges")
+    public void testInvalidRange() {
+        assertThrows(InvalidSearchParametersException.class, () -> new MovieSearchCriteria(
+                null, null, null, null, 2000, 1990, null, null, null, null));
+    }
+
+    @Test
+    @DisplayName("Should return exactly what a naive scan returns, in catalog order")
+    public void testPlansMatchNaiveScan() {
+        List<Movie> catalog = new ArrayList<>();
+        String[] genres = {"Drama", "Action/Crime", "Comedy/Romance", "Adventure/Sci-Fi", "Horror", "Crime/Drama"};
+        Random random = new Random(42);
+        for (int i = 1; i <= 5_000; i++) {
+            catalog.add(new Movie(i, "Treasure " + Integer.toString(i, 36), "Captain " + random.nextInt(300),
+                    1950 + random.nextInt(70), genres[random.nextInt(genres.length)], "", 80 + random.nextInt(100),
+                    random.nextInt(11) / 2.0));
+        }
+        MovieQueryPlanner largePlanner = new MovieQueryPlanner(new MovieCatalogStatistics(catalog));
+
+        for (int q = 0; q < 300; q++) {
+            MovieSearchCriteria criteria = new MovieSearchCriteria(
+                    random.nextInt(3) == 0 ? Integer.toString(random.nextInt(36), 36) : null,
+                    random.nextInt(10) == 0 ? (long) random.nextInt(6_000) + 1 : null,
+                    random.nextInt(3) == 0 ? genres[random.nextInt(genres.length)].substring(0, 3) : null,
+                    random.nextInt(4) == 0 ? "captain " + random.nextInt(30) : null,
+                    random.nextInt(3) == 0 ? 1950 + random.nextInt(35) : null,
+                    random.nextInt(3) == 0 ? 1985 + random.nextInt(35) : null,
+                    random.nextInt(3) == 0 ? random.nextInt(6) / 1.0 : null,
+                    null,
+                    null,
+                    random.nextInt(4) == 0 ? 80 + random.nextInt(100) : null);
+            assertEquals(naiveScan(catalog, criteria), largePlanner.plan(criteria).execute(),
+                    "Plan " + largePlanner.plan(criteria) + " disagreed for " + criteria);
+        }
+    }
+
+    private static List<Movie> naiveScan(List<Movie> catalog, MovieSearchCriteria c) {
+        List<Movie> results = new ArrayList<>();
+        for (Movie m : catalog) {
+            if (c.getName() != null && !m.getMovieName().toLowerCase(Locale.ROOT).contains(c.getName())) continue;
+            if (c.getId() != null && m.getId() != c.getId()) continue;
+            if (c.getGenre() != null && !m.getGenre().toLowerCase(Locale.ROOT).contains(c.getGenre())) continue;
+            if (c.getDirector() != null && !m.getDirector().toLowerCase(Locale.ROOT).contains(c.getDirector())) continue;
+            if (c.getMinYear() != null && m.getYear() < c.getMinYear()) continue;
+            if (c.getMaxYear() != null && m.getYear() > c.getMaxYear()) continue;
+            if (c.getMinRating() != null && m.getImdbRating() < c.getMinRating()) continue;
+            if (c.getMaxDuration() != null && m.getDuration() > c.getMaxDuration()) continue;
+            results.add(m);
+        }
+        return results;
+    }
+}
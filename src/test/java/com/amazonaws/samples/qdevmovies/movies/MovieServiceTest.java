@@ -30,6 +30,22 @@ public class MovieServiceTest {
         assertEquals(12, movies.size(), "Should have 12 movie treasures in our collection!");
     }
 
+    @Test
+    @DisplayName("Should stow every shard's treasures in ID order")
+    public void testMoviesLoadedInIdOrder() {
+        assertInIdOrder(movieService.getAllMovies());
+        for (int i = 0; i < 3; i++) {
+            assertInIdOrder(new MovieService(new CatalogShard(i, 3, "a,b,c")).getAllMovies());
+        }
+    }
+
+    private static void assertInIdOrder(List<Movie> movies) {
+        for (int i = 1; i < movies.size(); i++) {
+            assertTrue(movies.get(i - 1).getId() < movies.get(i).getId(),
+                    "Treasures should be in ID order for the shard merge: " + movies);
+        }
+    }
+
     @Test
     @DisplayName("Should find movie treasure by valid ID")
     public void testGetMovieByValidId() {
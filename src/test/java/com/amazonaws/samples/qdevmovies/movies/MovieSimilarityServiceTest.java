@@ -0,0 +1,143 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for the "more like this" treasure recommendations.
+ */
+public class MovieSimilarityServiceTest {
+
+    private MovieSimilarityService similarityService;
+
+    @BeforeEach
+    public void setUp() {
+        similarityService = new MovieSimilarityService(new MovieService(), new ReviewService());
+    }
+
+    @Test
+    @DisplayName("Should return no recommendations before the index is built")
+    public void testNotReadyBeforeRebuild() {
+        assertFalse(similarityService.isReady());
+        assertTrue(similarityService.getSimilarMovies(1L, 4).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should rank the same director and genre highest")
+    public void testSimilarMoviesRanking() {
+        similarityService.rebuild();
+        assertTrue(similarityService.isReady());
+
+        List<Movie> similar = similarityService.getSimilarMovies(3L, 4);
+        assertEquals(4, similar.size());
+        assertEquals("Dream Heist", similar.get(0).getMovieName(),
+                "Same captain and Action genre should be the closest treasure!");
+    }
+
+    @Test
+    @DisplayName("Should never recommend the movie itself or duplicates")
+    public void testSimilarMoviesExcludeSelf() {
+        similarityService.rebuild();
+        for (Movie movie : new MovieService().getAllMovies()) {
+            List<Movie> similar = similarityService.getSimilarMovies(movie.getId(), MovieSimilarityService.TOP_N);
+            Set<Long> ids = new HashSet<>();
+            for (Movie neighbor : similar) {
+                assertNotEquals(movie.getId(), neighbor.getId());
+                assertTrue(ids.add(neighbor.getId()), "Neighbours should be unique!");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should respect the limit and ignore unknown movies")
+    public void testSimilarMoviesLimits() {
+        similarityService.rebuild();
+        assertEquals(2, similarityService.getSimilarMovies(1L, 2).size());
+        assertTrue(similarityService.getSimilarMovies(1L, 100).size() <= MovieSimilarityService.TOP_N);
+        assertTrue(similarityService.getSimilarMovies(999L, 4).isEmpty());
+        assertTrue(similarityService.getSimilarMovies(1L, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should precompute neighbours for a large catalog using blocking")
+    public void testLargeCatalog() {
+        final List<Movie> catalog = new ArrayList<>();
+        String[] genres = {"Drama", "Action/Crime", "Comedy/Romance", "Adventure/Sci-Fi", "Horror"};
+        for (int i = 1; i <= 20_000; i++) {
+            catalog.add(new Movie(i, "Treasure " + i, "Captain " + (i % 700), 1950 + (i % 70),
+                    genres[i % genres.length], "A voyage numbered " + (i % 97) + " across the seas",
+                    90 + (i % 60), (i % 10) / 2.0));
+        }
+        MovieService largeMovieService = new MovieService() {
+            @Override
+            public List<Movie> getAllMovies() {
+                return catalog;
+            }
+        };
+        ReviewService noReviews = new ReviewService() {
+            @Override
+            public OptionalDouble getAverageRating(long movieId) {
+                return OptionalDouble.empty();
+            }
+        };
+
+        MovieSimilarityService largeService = new MovieSimilarityService(largeMovieService, noReviews);
+        largeService.rebuild();
+
+        for (long id = 1; id <= catalog.size(); id += 997) {
+            List<Movie> similar = largeService.getSimilarMovies(id, MovieSimilarityService.TOP_N);
+            assertEquals(MovieSimilarityService.TOP_N, similar.size());
+            String genre = catalog.get((int) id - 1).getGenre();
+            assertEquals(genre, similar.get(0).getGenre(), "Best neighbour should share the genre!");
+        }
+    }
+
+    @Test
+    @DisplayName("Should fold a burst of movie changes into one queued rebuild and skip review-only changes")
+    public void testRebuildsCoalesce() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger rebuilds = new AtomicInteger();
+        MovieSimilarityService service = new MovieSimilarityService(new MovieService(), new ReviewService()) {
+            @Override
+            public synchronized void rebuild() {
+                rebuilds.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.rebuild();
+            }
+        };
+        try {
+            service.onCatalogChanged(new CatalogChangedEvent(this, 1, false));
+            assertFalse(service.awaitReady(1_000));
+            assertEquals(0, rebuilds.get(), "A new review alone should not recompute every neighbour!");
+
+            service.onCatalogChanged(new CatalogChangedEvent(this, 2, true));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int version = 3; version < 53; version++) {
+                service.onCatalogChanged(new CatalogChangedEvent(this, version, true));
+            }
+            release.countDown();
+            assertTrue(service.awaitReady(10_000));
+            assertEquals(2, rebuilds.get(), "The running rebuild plus one for everything that arrived meanwhile");
+        } finally {
+            service.stop();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for the type-ahead suggestion trie that helps landlubbers find treasures quickly.
+ */
+public class MovieSuggestionServiceTest {
+
+    private MovieSuggestionService suggestionService;
+
+    @BeforeEach
+    public void setUp() {
+        suggestionService = new MovieSuggestionService(new MovieService());
+    }
+
+    @Test
+    @DisplayName("Should suggest movie titles by prefix, ignoring case")
+    public void testSuggestByTitlePrefix() {
+        List<MovieSuggestion> results = suggestionService.suggest("RISON", 5);
+        assertEquals(0, results.size(), "Prefix must match the start of a word, not the middle!");
+
+        results = suggestionService.suggest("THE PRIS", 5);
+        assertEquals(1, results.size());
+        assertEquals("The Prison Escape", results.get(0).getText());
+        assertEquals(MovieSuggestion.Type.MOVIE, results.get(0).getType());
+        assertEquals(Long.valueOf(1L), results.get(0).getMovieId());
+    }
+
+    @Test
+    @DisplayName("Should suggest titles from any word boundary")
+    public void testSuggestByInnerWord() {
+        List<MovieSuggestion> results = suggestionService.suggest("esc", 5);
+        assertEquals(1, results.size());
+        assertEquals("The Prison Escape", results.get(0).getText());
+    }
+
+    @Test
+    @DisplayName("Should ignore punctuation when matching")
+    public void testSuggestIgnoresPunctuation() {
+        List<MovieSuggestion> results = suggestionService.suggest("space wars the", 5);
+        assertEquals(1, results.size());
+        assertEquals("Space Wars: The Beginning", results.get(0).getText());
+    }
+
+    @Test
+    @DisplayName("Should suggest directors ranked by their best movie")
+    public void testSuggestDirectors() {
+        List<MovieSuggestion> results = suggestionService.suggest("chris", 5);
+        assertEquals(1, results.size());
+        assertEquals("Chris Moviemaker", results.get(0).getText());
+        assertEquals(MovieSuggestion.Type.DIRECTOR, results.get(0).getType());
+        assertNull(results.get(0).getMovieId());
+        assertEquals(5.0, results.get(0).getImdbRating());
+    }
+
+    @Test
+    @DisplayName("Should rank completions by rating and respect the limit")
+    public void testSuggestRankingAndLimit() {
+        List<MovieSuggestion> results = suggestionService.suggest("the", 3);
+        assertEquals(3, results.size());
+        for (MovieSuggestion suggestion : results) {
+            assertEquals(5.0, suggestion.getImdbRating(), "Top completions should be the highest rated!");
+        }
+
+        List<MovieSuggestion> capped = suggestionService.suggest("the", 100);
+        assertTrue(capped.size() <= MovieSuggestionService.MAX_SUGGESTIONS);
+        for (int i = 1; i < capped.size(); i++) {
+            assertTrue(capped.get(i - 1).getImdbRating() >= capped.get(i).getImdbRating());
+        }
+    }
+
+    @Test
+    @DisplayName("Should return nothing for blank or unknown prefixes")
+    public void testSuggestNoMatches() {
+        assertTrue(suggestionService.suggest(null, 5).isEmpty());
+        assertTrue(suggestionService.suggest("   ", 5).isEmpty());
+        assertTrue(suggestionService.suggest("zzz", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should change the fingerprint only when the catalog changes")
+    public void testFingerprintFollowsCatalog() {
+        MovieService movieService = new MovieService();
+        MovieSuggestionService service = new MovieSuggestionService(movieService);
+        String before = service.getFingerprint();
+        assertEquals(before, new MovieSuggestionService(new MovieService()).getFingerprint(),
+                "The same catalog should give the same fingerprint!");
+
+        movieService.updateCatalog(Collections.emptyList(), Collections.singletonList(1L));
+        service.onCatalogChanged(new CatalogChangedEvent(this, 1, true));
+        assertNotEquals(before, service.getFingerprint(), "A removed title should change the fingerprint!");
+    }
+
+    @Test
+    @DisplayName("Should keep per-node top-K correct when many entries share a prefix")
+    public void testTrieTopKAcrossSubtrees() {
+        List<MovieSuggestion> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(new MovieSuggestion("Treasure " + i, MovieSuggestion.Type.MOVIE, (long) i + 1, i / 10.0));
+        }
+        MovieSuggestionTrie trie = MovieSuggestionTrie.build(entries, 4);
+
+        List<MovieSuggestion> results = trie.suggest("tre", 10);
+        assertEquals(4, results.size(), "Trie should never return more than its K!");
+        assertEquals(Arrays.asList("Treasure 49", "Treasure 48", "Treasure 47", "Treasure 46"),
+                Arrays.asList(results.get(0).getText(), results.get(1).getText(),
+                        results.get(2).getText(), results.get(3).getText()));
+
+        List<MovieSuggestion> narrow = trie.suggest("treasure 1", 10);
+        assertEquals("Treasure 19", narrow.get(0).getText());
+    }
+}
@@ -3,15 +3,23 @@ package com.amazonaws.samples.qdevmovies.movies;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.ui.Model;
 import org.springframework.ui.ExtendedModelMap;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Scanner;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -44,6 +52,10 @@ public class MoviesControllerTest {
             java.lang.reflect.Field reviewServiceField = MoviesController.class.getDeclaredField("reviewService");
             reviewServiceField.setAccessible(true);
             reviewServiceField.set(moviesController, mockReviewService);
+
+            java.lang.reflect.Field similarityServiceField = MoviesController.class.getDeclaredField("movieSimilarityService");
+            similarityServiceField.setAccessible(true);
+            similarityServiceField.set(moviesController, new MovieSimilarityService(mockMovieService, mockReviewService));
         } catch (Exception e) {
             throw new RuntimeException("Failed to inject mock services", e);
         }
@@ -62,16 +74,18 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should return movie details view for valid treasure ID")
     public void testGetMovieDetails() {
-        String result = moviesController.getMovieDetails(1L, model);
+        String result = moviesController.getMovieDetails(1L, null, null, model);
         assertNotNull(result);
         assertEquals("movie-details", result);
         assertTrue(model.containsAttribute("movie"));
+        assertTrue(model.containsAttribute("similarMovies"));
+        assertTrue(model.containsAttribute("reviewPage"));
     }
 
     @Test
     @DisplayName("Should return error view for invalid treasure ID")
     public void testGetMovieDetailsNotFound() {
-        String result = moviesController.getMovieDetails(999L, model);
+        String result = moviesController.getMovieDetails(999L, null, null, model);
         assertNotNull(result);
         assertEquals("error", result);
         assertTrue(model.containsAttribute("title"));
@@ -170,6 +184,24 @@ public class MoviesControllerTest {
         assertTrue(message.contains("treasure hunt"), "Error message should have pirate theme");
     }
 
+    @Test
+    @DisplayName("Should render the search summary for a genre-only treasure hunt")
+    public void testGenreOnlySearchPageRenders() throws IOException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MoviesApplication.class).run(
+                "--server.port=0",
+                "--logging.level.com.amazonaws.samples.qdevmovies=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://localhost:" + port + "/movies/search?genre=Drama").openConnection();
+            assertEquals(200, connection.getResponseCode(), "A search without a name should still render!");
+            try (Scanner body = new Scanner(connection.getInputStream(), "UTF-8").useDelimiter("\\A")) {
+                String page = body.next();
+                assertTrue(page.contains("Genre: \""), "The summary should show the genre");
+                assertFalse(page.contains("Name: \""), "The summary should leave out the empty name");
+            }
+        }
+    }
+
     @Test
     @DisplayName("Should integrate with movie service correctly")
     public void testMovieServiceIntegration() {
@@ -232,5 +264,10 @@ public class MoviesControllerTest {
         public List<Review> getReviewsForMovie(long movieId) {
             return new ArrayList<>();
         }
+
+        @Override
+        public ReviewPage getReviewPage(long movieId, ReviewSort sort, int page, int pageSize) {
+            return new ReviewPage(new ArrayList<>(), sort, 1, pageSize, 0, 0, new int[ReviewIndex.HISTOGRAM_BUCKETS]);
+        }
     }
 }
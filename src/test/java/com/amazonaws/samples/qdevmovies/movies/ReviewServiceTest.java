@@ -0,0 +1,112 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for paging through the crew's reviews of each treasure.
+ */
+public class ReviewServiceTest {
+
+    private static List<String> comments(ReviewPage page) {
+        return page.getReviews().stream().map(Review::getComment).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should load reviews once and page them in every order")
+    public void testReviewPageSorts() {
+        ReviewService reviewService = new ReviewService();
+        List<Review> all = reviewService.getReviewsForMovie(1);
+        assertEquals(3, all.size());
+
+        ReviewPage newest = reviewService.getReviewPage(1, ReviewSort.NEWEST, 1, 10);
+        assertEquals(all.get(2).getComment(), newest.getReviews().get(0).getComment());
+        ReviewPage oldest = reviewService.getReviewPage(1, ReviewSort.OLDEST, 1, 10);
+        assertEquals(all.get(0).getComment(), oldest.getReviews().get(0).getComment());
+
+        ReviewPage highest = reviewService.getReviewPage(1, ReviewSort.HIGHEST, 1, 10);
+        for (int i = 1; i < highest.getReviews().size(); i++) {
+            assertTrue(highest.getReviews().get(i - 1).getRating() >= highest.getReviews().get(i).getRating());
+        }
+        ReviewPage lowest = reviewService.getReviewPage(1, ReviewSort.LOWEST, 1, 10);
+        assertEquals(highest.getReviews().get(2).getRating(), lowest.getReviews().get(0).getRating());
+
+        assertEquals(0, reviewService.getReviewPage(999, ReviewSort.NEWEST, 1, 10).getTotalReviews());
+    }
+
+    @Test
+    @DisplayName("Should bucket ratings into half stars and clamp pages")
+    public void testHistogramAndPaging() {
+        ReviewService reviewService = new ReviewService();
+        double[] ratings = {1.0, 1.2, 2.5, 3.0, 4.8, 5.0, 5.0};
+        for (int i = 0; i < ratings.length; i++) {
+            reviewService.appendReview(500, new Review("Sailor " + i, "🦜", ratings[i], "Review " + i));
+        }
+
+        ReviewPage page = reviewService.getReviewPage(500, ReviewSort.NEWEST, 3, 3);
+        assertEquals(3, page.getPage());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(1, page.getReviews().size(), "Last page should hold the remainder!");
+        assertTrue(page.isHasPrevious());
+        assertFalse(page.isHasNext());
+        assertEquals(3, reviewService.getReviewPage(500, ReviewSort.NEWEST, 99, 3).getPage(), "Pages past the end clamp!");
+        assertEquals(1, reviewService.getReviewPage(500, ReviewSort.NEWEST, -4, 3).getPage());
+
+        List<ReviewPage.RatingBucket> histogram = page.getHistogram();
+        assertEquals(ReviewIndex.HISTOGRAM_BUCKETS, histogram.size());
+        assertEquals(5.0, histogram.get(0).getStars());
+        assertEquals(1.0, histogram.get(8).getStars());
+        int[] expected = {3, 0, 0, 0, 1, 1, 0, 0, 2}; // 5.0 (4.8 rounds up), 4.5 ... 1.0 (1.2 rounds down)
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], histogram.get(i).getCount(), "Bucket " + histogram.get(i).getStars());
+        }
+        assertEquals((1.0 + 1.2 + 2.5 + 3.0 + 4.8 + 5.0 + 5.0) / 7, page.getAverageRating(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should average ratings from the running sum, including appended reviews")
+    public void testAverageRating() {
+        ReviewService reviewService = new ReviewService();
+        List<Review> reviews = reviewService.getReviewsForMovie(1);
+        double mean = reviews.stream().mapToDouble(Review::getRating).average().getAsDouble();
+        assertEquals(mean, reviewService.getAverageRating(1).getAsDouble(), 1e-9);
+
+        reviewService.appendReview(1, new Review("Pirate", "🦜", 1.0, "Arrr"));
+        assertEquals((mean * reviews.size() + 1.0) / (reviews.size() + 1),
+                reviewService.getAverageRating(1).getAsDouble(), 1e-9);
+        assertFalse(reviewService.getAverageRating(999).isPresent(), "A movie without reviews has no average!");
+    }
+
+    @Test
+    @DisplayName("Should keep appended reviews in the same order as a freshly built index")
+    public void testAppendMatchesRebuild() {
+        Random random = new Random(42);
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            reviews.add(new Review("Sailor " + i, "🦜", 1 + random.nextInt(9) / 2.0, "Review " + i));
+        }
+        ReviewIndex bulk = ReviewIndex.of(reviews);
+        ReviewIndex appended = ReviewIndex.of(reviews.subList(0, 49_000));
+        for (Review review : reviews.subList(49_000, 50_000)) {
+            appended = appended.withReview(review);
+        }
+
+        for (ReviewSort sort : ReviewSort.values()) {
+            for (int page : new int[] {1, 7, 2500}) {
+                assertEquals(comments(bulk.page(sort, page, 20)), comments(appended.page(sort, page, 20)),
+                        sort + " page " + page + " should match!");
+            }
+        }
+        ReviewPage highest = bulk.page(ReviewSort.HIGHEST, 1, 20);
+        assertEquals(5.0, highest.getReviews().get(0).getRating());
+        assertEquals(20, highest.getReviews().size());
+        assertEquals(50_000, highest.getTotalReviews());
+    }
+}
@@ -0,0 +1,258 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for splitting the treasure chest across ships and hunting on all of them at once.
+ */
+public class ShardedSearchCoordinatorTest {
+
+    private static final String NODES = "http://shard-0,http://shard-1,http://shard-2";
+
+    /**
+     * Answers remote calls from in-process shards, optionally hanging one of them.
+     */
+    private static class StubShardClient implements ShardClient {
+        final Map<String, MovieService> shards = new HashMap<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Set<String> hangingNodes = new HashSet<>();
+        String brokenNode;
+
+        StubShardClient() {
+            for (int i = 0; i < 3; i++) {
+                shards.put("http://shard-" + i, new MovieService(new CatalogShard(i, 3, NODES)));
+            }
+        }
+
+        @Override
+        public List<Movie> search(String nodeUrl, MovieSearchCriteria criteria, int timeoutMillis) throws IOException {
+            awaitIfHanging(nodeUrl);
+            return shards.get(nodeUrl).searchMovieTreasures(criteria);
+        }
+
+        @Override
+        public Optional<Movie> getMovie(String nodeUrl, long id, int timeoutMillis) throws IOException {
+            awaitIfHanging(nodeUrl);
+            return shards.get(nodeUrl).getMovieById(id);
+        }
+
+        private void awaitIfHanging(String nodeUrl) throws IOException {
+            if (nodeUrl.equals(brokenNode)) {
+                throw new IOException("Connection refused");
+            }
+            if (hangingNodes.contains(nodeUrl)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static ShardedSearchCoordinator coordinator(StubShardClient client, int timeoutMillis) {
+        CatalogShard self = new CatalogShard(0, 3, NODES);
+        return new ShardedSearchCoordinator(self, client.shards.get("http://shard-0"), client, timeoutMillis);
+    }
+
+    private static ShardedSearchCoordinator coordinator(StubShardClient client, MovieService local,
+                                                        int timeoutMillis, int maxConcurrentCalls) {
+        CatalogShard self = new CatalogShard(0, 3, NODES);
+        return new ShardedSearchCoordinator(self, local, client, timeoutMillis, maxConcurrentCalls);
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should give every movie to exactly one shard")
+    public void testShardsPartitionCatalog() {
+        StubShardClient client = new StubShardClient();
+        List<Long> owned = new ArrayList<>();
+        for (MovieService shard : client.shards.values()) {
+            owned.addAll(ids(shard.getAllMovies()));
+        }
+        owned.sort(null);
+        assertEquals(ids(new MovieService().getAllMovies()), owned);
+
+        CatalogShard shard = new CatalogShard(1, 4, "a,b,c,d");
+        int[] counts = new int[4];
+        for (long id = 1; id <= 100_000; id++) {
+            counts[shard.shardFor(id)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 23_000 && count < 27_000, "Hash ranges should be balanced: " + Arrays.toString(counts));
+        }
+    }
+
+    @Test
+    @DisplayName("Should merge shard results into the same order as a single-node search")
+    public void testScatterGatherMatchesSingleNode() {
+        ShardedSearchCoordinator coordinator = coordinator(new StubShardClient(), 2000);
+        MovieService wholeCatalog = new MovieService();
+        try {
+            for (MovieSearchCriteria criteria : Arrays.asList(
+                    MovieSearchCriteria.of(null, null, null),
+                    MovieSearchCriteria.of("the", null, null),
+                    MovieSearchCriteria.of(null, null, "drama"),
+                    MovieSearchCriteria.of(null, 5L, null))) {
+                ShardedSearchResult result = coordinator.search(criteria);
+                assertFalse(result.isPartial());
+                assertEquals(ids(wholeCatalog.searchMovieTreasures(criteria)), ids(result.getMovies()),
+                        "Sharded hunt for " + criteria + " should match the single ship!");
+            }
+            assertEquals(1, coordinator.search(MovieSearchCriteria.of(null, 5L, null)).getShardsQueried(),
+                    "An ID search should only visit the owning shard!");
+        } finally {
+            coordinator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return partial results when a shard times out or fails")
+    public void testPartialResultsOnShardFailure() {
+        StubShardClient client = new StubShardClient();
+        client.hangingNodes.add("http://shard-1");
+        client.brokenNode = "http://shard-2";
+        ShardedSearchCoordinator coordinator = coordinator(client, 100);
+        try {
+            long start = System.nanoTime();
+            ShardedSearchResult result = coordinator.search(MovieSearchCriteria.of(null, null, null));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(result.isPartial());
+            assertEquals(3, result.getShardsQueried());
+            assertEquals(Arrays.asList(1, 2), new ArrayList<>(result.getFailedShards().keySet()));
+            assertTrue(result.getFailedShards().get(1).contains("timed out"));
+            assertEquals(ids(client.shards.get("http://shard-0").getAllMovies()), ids(result.getMovies()));
+            assertTrue(elapsedMillis < 1000, "A hung shard should not hold the hunt past its timeout!");
+        } finally {
+            client.release.countDown();
+            coordinator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should report a failing local shard like any other failed shard")
+    public void testLocalShardFailureIsPartial() {
+        StubShardClient client = new StubShardClient();
+        MovieService brokenLocal = new MovieService(new CatalogShard(0, 3, NODES)) {
+            @Override
+            public List<Movie> searchMovieTreasures(MovieSearchCriteria criteria) {
+                throw new IllegalStateException("local index be sunk");
+            }
+        };
+        ShardedSearchCoordinator coordinator = coordinator(client, brokenLocal, 2000, 8);
+        try {
+            ShardedSearchResult result = coordinator.search(MovieSearchCriteria.of(null, null, null));
+            assertTrue(result.isPartial());
+            assertEquals("local index be sunk", result.getFailedShards().get(0));
+            List<Long> expected = new ArrayList<>(ids(client.shards.get("http://shard-1").getAllMovies()));
+            expected.addAll(ids(client.shards.get("http://shard-2").getAllMovies()));
+            expected.sort(null);
+            assertEquals(expected, ids(result.getMovies()));
+        } finally {
+            coordinator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail shard calls fast once the scatter pool is full")
+    public void testBoundedScatterPool() {
+        StubShardClient client = new StubShardClient();
+        client.hangingNodes.add("http://shard-1");
+        client.hangingNodes.add("http://shard-2");
+        // Two threads and two queue slots
+        ShardedSearchCoordinator coordinator = coordinator(client, client.shards.get("http://shard-0"), 100, 2);
+        try {
+            // Leaves both threads stuck on the hung shards
+            coordinator.search(MovieSearchCriteria.of(null, null, null));
+            ShardedSearchResult result = coordinator.search(MovieSearchCriteria.of(null, null, null));
+            assertEquals(3, result.getFailedShards().size(), "Nothing can run while the pool is stuck: "
+                    + result.getFailedShards());
+            assertEquals("too many shard calls in flight", result.getFailedShards().get(2),
+                    "Calls beyond the queue should be rejected, not given a new thread!");
+        } finally {
+            client.release.countDown();
+            coordinator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should route ID lookups to the owning shard")
+    public void testGetMovieByIdRoutesToOwner() {
+        StubShardClient client = new StubShardClient();
+        ShardedSearchCoordinator coordinator = coordinator(client, 2000);
+        try {
+            for (Movie movie : new MovieService().getAllMovies()) {
+                assertEquals(movie.getId(), coordinator.getMovieById(movie.getId()).get().getId());
+            }
+            assertFalse(coordinator.getMovieById(999L).isPresent());
+
+            long remoteId = client.shards.get("http://shard-2").getAllMovies().get(0).getId();
+            client.brokenNode = "http://shard-2";
+            assertThrows(MovieServiceException.class, () -> coordinator.getMovieById(remoteId));
+        } finally {
+            coordinator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should scatter over HTTP between instances running on different ports")
+    public void testTwoInstancesOverHttp() throws IOException {
+        int[] ports = {freePort(), freePort()};
+        String nodes = "http://localhost:" + ports[0] + ",http://localhost:" + ports[1];
+        List<ConfigurableApplicationContext> instances = new ArrayList<>();
+        try {
+            for (int i = 0; i < ports.length; i++) {
+                instances.add(new SpringApplicationBuilder(MoviesApplication.class).run(
+                        "--server.port=" + ports[i],
+                        "--movies.sharding.shard-index=" + i,
+                        "--movies.sharding.shard-count=2",
+                        "--movies.sharding.nodes=" + nodes,
+                        "--logging.level.com.amazonaws.samples.qdevmovies=WARN"));
+            }
+            MovieService first = instances.get(0).getBean(MovieService.class);
+            MovieService second = instances.get(1).getBean(MovieService.class);
+            assertEquals(12, first.getAllMovies().size() + second.getAllMovies().size());
+
+            ShardedSearchCoordinator coordinator = instances.get(0).getBean(ShardedSearchCoordinator.class);
+            ShardedSearchResult result = coordinator.search(MovieSearchCriteria.of(null, null, null));
+            assertFalse(result.isPartial(), "Both shards should answer: " + result.getFailedShards());
+            assertEquals(ids(new MovieService().getAllMovies()), ids(result.getMovies()));
+
+            long remoteId = second.getAllMovies().get(0).getId();
+            Movie remote = coordinator.getMovieById(remoteId).get();
+            assertEquals(second.getMovieById(remoteId).get().getMovieName(), remote.getMovieName());
+        } finally {
+            for (ConfigurableApplicationContext instance : instances) {
+                instance.close();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
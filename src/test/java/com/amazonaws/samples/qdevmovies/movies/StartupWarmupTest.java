@@ -0,0 +1,92 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ahoy! Tests for warming up the ship before she takes on passengers.
+ */
+public class StartupWarmupTest {
+
+    @Test
+    @DisplayName("Should pick the 99th percentile latency")
+    public void testP99() {
+        long[] latencies = new long[200];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = latencies.length - i;
+        }
+        assertEquals(198, StartupWarmup.p99(latencies));
+        assertEquals(7, StartupWarmup.p99(new long[] {3, 7, 5}));
+        assertEquals(0, StartupWarmup.p99(new long[0]));
+    }
+
+    @Test
+    @DisplayName("Should warm hot paths before ready without tripping admission control")
+    public void testWarmupProfile() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MoviesApplication.class).run(
+                "--server.port=0",
+                "--spring.profiles.active=warmup",
+                "--movies.warmup.max-rounds=10",
+                "--logging.level.com.amazonaws.samples.qdevmovies=WARN")) {
+            Map<String, Object> report = context.getBean(StartupWarmup.class).getReport();
+            assertEquals(true, report.get("enabled"));
+            assertEquals(true, report.get("similarMoviesReady"));
+            assertEquals(0, report.get("failedRequests"), "Every warm-up request should succeed: " + report);
+            assertEquals(0L, report.get("refusedRequests"), "The gate should let the warm-up through: " + report);
+            assertTrue((Integer) report.get("rounds") > 0);
+            assertTrue((Integer) report.get("searchRequests") <= 10, "Searches should stay within half the burst!");
+            if (Boolean.TRUE.equals(report.get("reachedTarget"))) {
+                assertNotNull(report.get("timeToFirstGoodP99Millis"));
+            }
+
+            Map<String, Object> admission = context.getBean(SearchAdmissionFilter.class).getMetrics();
+            assertEquals(0L, admission.get("rejectedRateLimited"));
+            assertEquals(0L, admission.get("rejectedOverloaded"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should turn passengers away until the ship is ready, but not her own crew")
+    public void testReadinessGate() throws Exception {
+        ApplicationAvailabilityBean availability = new ApplicationAvailabilityBean();
+        ReadinessGateFilter gate = new ReadinessGateFilter(availability);
+
+        MockHttpServletResponse refused = filter(gate, new MockHttpServletRequest("GET", "/movies"));
+        assertEquals(503, refused.getStatus(), "Nothing has reported ready yet");
+        assertEquals(String.valueOf(ReadinessGateFilter.RETRY_AFTER_SECONDS), refused.getHeader("Retry-After"));
+
+        MockHttpServletRequest warmup = new MockHttpServletRequest("GET", "/movies");
+        warmup.addHeader(ReadinessGateFilter.WARMUP_HEADER, "a-guess");
+        assertEquals(503, filter(gate, warmup).getStatus(), "Only the real token should pass");
+        warmup = new MockHttpServletRequest("GET", "/movies");
+        warmup.addHeader(ReadinessGateFilter.WARMUP_HEADER, gate.getWarmupToken());
+        assertEquals(200, filter(gate, warmup).getStatus());
+        assertEquals(200, filter(gate, new MockHttpServletRequest("GET", "/api/catalog/changes")).getStatus(),
+                "Followers should still sync from a warming leader");
+        assertEquals(200, filter(gate, new MockHttpServletRequest("GET", "/api/cluster/shard/search")).getStatus());
+        assertEquals(503, filter(gate, new MockHttpServletRequest("GET", "/api/cluster/movies/search")).getStatus());
+        assertEquals(3, gate.getRefused());
+
+        availability.onApplicationEvent(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+        assertEquals(200, filter(gate, new MockHttpServletRequest("GET", "/movies")).getStatus());
+    }
+
+    private static MockHttpServletResponse filter(ReadinessGateFilter gate, MockHttpServletRequest request)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        gate.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}